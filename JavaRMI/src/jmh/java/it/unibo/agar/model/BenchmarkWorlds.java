@@ -0,0 +1,19 @@
+package it.unibo.agar.model;
+
+import java.util.Random;
+
+/**
+ * Worlds for the benchmarks, always the same for the same parameters.
+ */
+final class BenchmarkWorlds {
+
+    static final long SEED = 42;
+
+    private BenchmarkWorlds() { }
+
+    static World create(final int players, final int foods, final int size) {
+        final Random random = new Random(SEED);
+        return new World(size, size, GameInitializer.initialPlayers(players, size, size, 120.0, random),
+                GameInitializer.initialFoods(foods, size, size, Food.DEFAULT_MASS, random));
+    }
+}
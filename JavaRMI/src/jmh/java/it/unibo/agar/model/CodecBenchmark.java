@@ -0,0 +1,62 @@
+package it.unibo.agar.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and encode/decode time of a world with the binary codec against the Java serialization of Serializer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"10", "200"})
+    private int players;
+
+    @Param({"150", "2000"})
+    private int foods;
+
+    @Param({"1000", "4000"})
+    private int worldSize;
+
+    private World world;
+    private BinaryCodec codec;
+    private byte[] serialized;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        world = BenchmarkWorlds.create(players, foods, worldSize);
+        codec = new BinaryCodec(false);
+        serialized = Serializer.serialize(world);
+        encoded = codec.toBytes(world);
+        System.out.printf("%nWorld of %d players and %d foods over %d units: Serializer %d bytes, BinaryCodec %d bytes%n",
+                players, foods, worldSize, serialized.length, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serializerEncode() {
+        return Serializer.serialize(world);
+    }
+
+    @Benchmark
+    public Object serializerDecode() {
+        return Serializer.deserialize(serialized);
+    }
+
+    @Benchmark
+    public ByteBuffer codecEncode() {
+        return codec.encode(world);
+    }
+
+    @Benchmark
+    public Object codecDecode() {
+        return codec.decode(encoded);
+    }
+}
@@ -0,0 +1,123 @@
+package it.unibo.agar.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the simulation hot paths: a whole tick, the eating pass, the world queries and the AI steering.
+ * The ticked state is rebuilt at every iteration, so each one starts from the same seeded world.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"10", "200", "1000"})
+    private int players;
+
+    @Param({"150", "2000"})
+    private int foods;
+
+    @Param({"1000", "4000"})
+    private int worldSize;
+
+    private World world;
+    private DefaultGameStateManager ticked;
+    private ArrayGameStateManager arrayTicked;
+    private ServerGameStateManager server;
+    private DefaultGameStateManager steered;
+    private String[] playerIds;
+    private List<Food> eatenFoods;
+    private int nextLookup;
+
+    @Setup(Level.Trial)
+    public void setupWorld() {
+        world = BenchmarkWorlds.create(players, foods, worldSize);
+        server = new ServerGameStateManager(world);
+        steered = new DefaultGameStateManager(world);
+        playerIds = world.getPlayers().stream().map(Player::getId).toArray(String[]::new);
+        // A tenth of the food, spread over the list
+        eatenFoods = world.getFoods().stream().filter(f -> f.getId().hashCode() % 10 == 0).toList();
+    }
+
+    @Setup(Level.Iteration)
+    public void setupTick() {
+        final Random random = new Random(BenchmarkWorlds.SEED);
+        ticked = new DefaultGameStateManager(world);
+        ticked.foodSpawner = new FoodSpawner(FoodSpawner.Settings.defaults(foods), random);
+        arrayTicked = new ArrayGameStateManager(world);
+        for (final String id : playerIds) {
+            final double dx = random.nextDouble() * 2 - 1;
+            final double dy = random.nextDouble() * 2 - 1;
+            ticked.setPlayerDirection(id, dx, dy);
+            arrayTicked.setPlayerDirection(id, dx, dy);
+        }
+    }
+
+    @Benchmark
+    public World defaultTick() {
+        ticked.tick();
+        return ticked.getWorld();
+    }
+
+    @Benchmark
+    public World arrayTick() {
+        arrayTicked.tick();
+        return arrayTicked.getWorld();
+    }
+
+    @Benchmark
+    public void serverHandleEating(final Blackhole blackhole) {
+        blackhole.consume(server.handleEating(world));
+        blackhole.consume(server.getPlayersToRemove());
+    }
+
+    @Benchmark
+    public World removeFoods() {
+        return world.removeFoods(eatenFoods);
+    }
+
+    @Benchmark
+    public Optional<Player> getPlayerById() {
+        nextLookup = (nextLookup + 1) % playerIds.length;
+        return world.getPlayerById(playerIds[nextLookup]);
+    }
+
+    /**
+     * Lookup in a world never queried before, paying for the index of the players.
+     */
+    @Benchmark
+    public Optional<Player> getPlayerByIdFreshWorld() {
+        nextLookup = (nextLookup + 1) % playerIds.length;
+        return new World(world.getWidth(), world.getHeight(), world.getPlayers(), world.getFoods())
+                .getPlayerById(playerIds[nextLookup]);
+    }
+
+    /**
+     * Steering of every player, as if all of them were bots.
+     */
+    @Benchmark
+    public Position moveAllAI() {
+        for (final String id : playerIds) {
+            AIMovement.moveAI(id, steered);
+        }
+        return steered.getPlayerDirection(playerIds[0]);
+    }
+
+    /**
+     * Same steering in one pass, as the server does for its bots.
+     */
+    @Benchmark
+    public Position moveAllAIBatched() {
+        AIMovement.moveAll(List.of(playerIds), steered);
+        return steered.getPlayerDirection(playerIds[0]);
+    }
+}
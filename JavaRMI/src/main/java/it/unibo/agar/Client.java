@@ -1,6 +1,5 @@
 package it.unibo.agar;
 
-import com.rabbitmq.client.*;
 import it.unibo.agar.model.*;
 import it.unibo.agar.view.LocalView;
 import javax.swing.*;
@@ -9,22 +8,42 @@ import java.rmi.NoSuchObjectException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Client {
     private static final int GAME_TICK_RATE_MS = 30;
+    private static final long RECONNECT_TIMEOUT_MS = 30000;
+    private static final long RECONNECT_RETRY_MS = GAME_TICK_RATE_MS;
+    // Failing calls for this long make the client look for a restarted server
+    private static final long RESTART_CHECK_MS = 1000;
     private static LocalView localView;
     private static DistributedClient client = null;
 
     public static void main(String[] args) throws IOException, TimeoutException {
         boolean AI = false;
-        for (String arg : args) {
-            if (arg.equalsIgnoreCase("-AI")) {
+        String amqpHost = null;
+        double updateRate = 1000.0 / GAME_TICK_RATE_MS;
+        boolean lobby = false;
+        String serverName = "remoteServer";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-AI")) {
                 AI = true;
-                break;
+            } else if (args[i].equalsIgnoreCase("-amqp") && i + 1 < args.length) {
+                amqpHost = args[++i];
+            } else if (args[i].equalsIgnoreCase("-rate") && i + 1 < args.length) {
+                updateRate = Double.parseDouble(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-lobby")) {
+                lobby = true;
+            } else if (args[i].equalsIgnoreCase("-server") && i + 1 < args.length) {
+                serverName = args[++i];
             }
         }
 
@@ -32,13 +51,25 @@ public class Client {
             var registry = LocateRegistry.getRegistry();
             GameServerInterface remoteServer = null;
             try {
-                remoteServer = (GameServerInterface) registry.lookup("remoteServer");
+                if (lobby) {
+                    serverName = ((LobbyInterface) registry.lookup(RoomManager.LOBBY_NAME)).assignRoom();
+                }
+                remoteServer = (GameServerInterface) registry.lookup(serverName);
             } catch (NotBoundException e) {
                 System.err.println("Server error: could not reach the server.");
                 System.exit(0);
             }
 
-            client = new DistributedClient(remoteServer, AI);
+            MessageBus bus = amqpHost != null ? new RabbitMQMessageBus(amqpHost) : null;
+            if (bus != null) {
+                client = new DistributedClient(remoteServer, AI, bus);
+            } else {
+                // Exchanging less often than every tick, the others are drawn two exchanges behind
+                int exchangeInterval = Math.max(1, (int) Math.round(1000.0 / GAME_TICK_RATE_MS / updateRate));
+                long interpolationDelay = Math.max(ClientGameStateManager.DEFAULT_INTERPOLATION_DELAY_MILLIS,
+                        2L * exchangeInterval * GAME_TICK_RATE_MS);
+                client = new DistributedClient(remoteServer, AI, exchangeInterval, interpolationDelay);
+            }
             try {
                 client.registration();
             } catch (RuntimeException e) {
@@ -49,24 +80,54 @@ public class Client {
             localView = new LocalView(client, client.getGameState().getPlayerId());
             localView.setVisible(true);
 
-            Timer gameLoopTimer = new Timer();
-            gameLoopTimer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    if(!client.isRunning()){
-                        this.cancel();
-                        SwingUtilities.invokeLater(localView::showGameOver);
+            final String boundName = serverName;
+            ScheduledExecutorService gameLoop = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "client-loop"));
+            AtomicBoolean repaintQueued = new AtomicBoolean(false);
+            AtomicBoolean reconnecting = new AtomicBoolean(false);
+            // When the calls started failing, 0 while the server answers
+            AtomicLong failingSince = new AtomicLong(0);
+            AtomicLong updatesSeen = new AtomicLong(0);
+            ExecutorService reconnector = VirtualThreads.newPerTaskExecutor("client-reconnect");
+            // The loop only steps the local game: the calls to the server run on their own threads
+            gameLoop.scheduleAtFixedRate(() -> {
+                if(!client.isRunning()){
+                    gameLoop.shutdown();
+                    SwingUtilities.invokeLater(localView::showGameOver);
+                    return;
+                }
+                try {
+                    client.tick();
+                    long updates = client.getUpdatesReceived();
+                    if (updatesSeen.getAndSet(updates) != updates && failingSince.getAndSet(0) != 0) {
+                        System.out.println("Server reachable again.");
+                    }
+                } catch (RemoteException e) {
+                    // The next calls go to the same server; only when they keep failing may it have restarted
+                    long now = System.currentTimeMillis();
+                    if (failingSince.compareAndSet(0, now)) {
+                        System.err.println("Server error: could not reach the server, retrying.");
                     }
-                    try {
-                        client.tick();
-                    } catch (RemoteException e) {
-                        System.err.println("Server error: could not reach the server.");
-                        this.cancel();
-                        SwingUtilities.invokeLater(localView::showGameOver);
+                    if (now - failingSince.get() >= RESTART_CHECK_MS && reconnecting.compareAndSet(false, true)) {
+                        reconnector.execute(() -> {
+                            if (reconnect(registry, boundName, failingSince)) {
+                                reconnecting.set(false);
+                            } else {
+                                System.err.println("Server error: could not reach the server.");
+                                gameLoop.shutdown();
+                                SwingUtilities.invokeLater(localView::showGameOver);
+                            }
+                        });
                     }
-                    SwingUtilities.invokeLater(localView::repaintView);
+                    return;
                 }
-            }, 0, GAME_TICK_RATE_MS);
+                // A frame still waiting for the Swing thread is not queued twice
+                if (repaintQueued.compareAndSet(false, true)) {
+                    SwingUtilities.invokeLater(() -> {
+                        repaintQueued.set(false);
+                        localView.repaintView();
+                    });
+                }
+            }, 0, GAME_TICK_RATE_MS, TimeUnit.MILLISECONDS);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -76,4 +137,37 @@ public class Client {
             System.err.println(e.getMessage());
         }
     }
+
+    /**
+     * Waits for the calls to the current server to work again or for a new server to be bound under its name;
+     * a server restarted from a checkpoint takes the player back under the same id, any other ends the game.
+     */
+    private static boolean reconnect(Registry registry, String serverName, AtomicLong failingSince) {
+        long deadline = System.currentTimeMillis() + RECONNECT_TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            if (failingSince.get() == 0) {
+                return true;
+            }
+            try {
+                GameServerInterface bound = (GameServerInterface) registry.lookup(serverName);
+                if (!client.isBoundTo(bound)) {
+                    if (!client.rejoin(bound)) {
+                        return false;
+                    }
+                    failingSince.set(0);
+                    System.out.println("Server restarted, back in the game.");
+                    return true;
+                }
+            } catch (RemoteException | NotBoundException e) {
+                // Not back yet
+            }
+            try {
+                Thread.sleep(RECONNECT_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
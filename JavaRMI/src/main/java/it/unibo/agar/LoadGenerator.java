@@ -0,0 +1,287 @@
+package it.unibo.agar;
+
+import it.unibo.agar.model.DistributedClient;
+import it.unibo.agar.model.DistributedGameStateManager;
+import it.unibo.agar.model.GameLoop;
+import it.unibo.agar.model.GameServerInterface;
+import it.unibo.agar.model.Histogram;
+import it.unibo.agar.model.InProcessMessageBus;
+import it.unibo.agar.model.LobbyInterface;
+import it.unibo.agar.model.RoomManager;
+import it.unibo.agar.model.VirtualThreads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load test: runs many AI clients in one JVM, each on its own (virtual, when available) thread,
+ * and reports the latency of every remote call, the rate of local ticks and of world updates from the server
+ * the bots achieve, and the errors.
+ * Bots that are eaten register again, so the load stays constant. With a lobby, every registration
+ * asks it for a room. With {@code -local} the server runs in the same JVM and the bots talk to it over
+ * an in-process message bus, which exercises the bus path without a broker.
+ * <p>
+ * The clients tick without waiting for the network, so the tick rate only shows that the bots keep up;
+ * how fast the server serves them is the update rate.
+ */
+public class LoadGenerator {
+    private static final int GAME_TICK_RATE_MS = 30;
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final int MAX_STEPS_PER_FRAME = 5;
+
+    private final Registry registry;
+    private final LobbyInterface lobby;
+    private final InProcessMessageBus bus;
+    private final Map<String, GameServerInterface> servers = new ConcurrentHashMap<>();
+    private final Map<Method, CallStatistics> calls = new LinkedHashMap<>();
+    private final AtomicInteger activeBots = new AtomicInteger();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder gameOvers = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        int bots = 100;
+        long durationSeconds = 60;
+        String host = null;
+        boolean useLobby = false;
+        boolean local = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-bots") && i + 1 < args.length) {
+                bots = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-duration") && i + 1 < args.length) {
+                durationSeconds = Long.parseLong(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-host") && i + 1 < args.length) {
+                host = args[++i];
+            } else if (args[i].equalsIgnoreCase("-lobby")) {
+                useLobby = true;
+            } else if (args[i].equalsIgnoreCase("-local")) {
+                local = true;
+            }
+        }
+
+        if (local) {
+            DistributedGameStateManager server = new DistributedGameStateManager();
+            InProcessMessageBus bus = new InProcessMessageBus();
+            server.attach(bus);
+            GameLoop loop = new GameLoop(GAME_TICK_RATE_MS, MAX_STEPS_PER_FRAME, server::tick, () -> { });
+            loop.start();
+            new LoadGenerator(server, bus).run(bots, TimeUnit.SECONDS.toNanos(durationSeconds));
+            loop.stop();
+            System.exit(0);
+        }
+
+        LoadGenerator generator;
+        try {
+            generator = new LoadGenerator(LocateRegistry.getRegistry(host), useLobby);
+            if (!useLobby) {
+                generator.serverFor("remoteServer");
+            }
+        } catch (NotBoundException | RemoteException e) {
+            System.err.println("Server error: could not reach the server.");
+            System.exit(1);
+            return;
+        }
+        generator.run(bots, TimeUnit.SECONDS.toNanos(durationSeconds));
+        System.exit(0);
+    }
+
+    public LoadGenerator(Registry registry, boolean useLobby) throws RemoteException, NotBoundException {
+        this.registry = registry;
+        this.lobby = useLobby ? (LobbyInterface) registry.lookup(RoomManager.LOBBY_NAME) : null;
+        this.bus = null;
+        this.registerCalls();
+    }
+
+    /**
+     * Drives a server of this JVM, the bots receiving the world and sending their inputs on the bus.
+     */
+    public LoadGenerator(GameServerInterface server, InProcessMessageBus bus) {
+        this.registry = null;
+        this.lobby = null;
+        this.bus = bus;
+        this.registerCalls();
+        this.servers.put("remoteServer", this.timedProxy(server));
+    }
+
+    private void registerCalls() {
+        Arrays.stream(GameServerInterface.class.getMethods())
+                .sorted(Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount))
+                .forEach(method -> calls.put(method, new CallStatistics(method.getName() + "/" + method.getParameterCount())));
+    }
+
+    /**
+     * Timed proxy of the server bound under the name, looked up on first use.
+     */
+    private GameServerInterface serverFor(String name) throws RemoteException, NotBoundException {
+        GameServerInterface server = this.servers.get(name);
+        if (server == null) {
+            server = this.timedProxy((GameServerInterface) this.registry.lookup(name));
+            this.servers.put(name, server);
+        }
+        return server;
+    }
+
+    private GameServerInterface timedProxy(GameServerInterface target) {
+        return (GameServerInterface) Proxy.newProxyInstance(GameServerInterface.class.getClassLoader(),
+                new Class<?>[]{GameServerInterface.class}, (proxy, method, arguments) -> this.timed(target, method, arguments));
+    }
+
+    private GameServerInterface nextServer() throws RemoteException, NotBoundException {
+        return this.lobby != null ? this.serverFor(this.lobby.assignRoom()) : this.servers.get("remoteServer");
+    }
+
+    private Object timed(GameServerInterface target, Method method, Object[] arguments) throws Throwable {
+        CallStatistics statistics = this.calls.get(method);
+        if (statistics == null) {
+            return method.invoke(target, arguments);
+        }
+        long start = System.nanoTime();
+        try {
+            return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+            statistics.errors.increment();
+            throw e.getCause();
+        } finally {
+            statistics.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    public void run(int bots, long durationNanos) throws InterruptedException {
+        System.out.printf("Starting %d bots for %d s on %s threads%n", bots, TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                VirtualThreads.available() ? "virtual" : "platform");
+        long start = System.nanoTime();
+        long deadline = start + durationNanos;
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("bot");
+        for (int i = 0; i < bots; i++) {
+            executor.execute(() -> this.runBot(deadline));
+        }
+        executor.shutdown();
+
+        long lastReport = start;
+        long lastTicks = 0;
+        long lastUpdates = 0;
+        while (!executor.awaitTermination(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            long now = System.nanoTime();
+            long totalTicks = this.ticks.sum();
+            long totalUpdates = this.updates.sum();
+            double seconds = (now - lastReport) / 1e9;
+            this.report(now - start, (totalTicks - lastTicks) / seconds, (totalUpdates - lastUpdates) / seconds,
+                    this.activeBots.get());
+            lastReport = now;
+            lastTicks = totalTicks;
+            lastUpdates = totalUpdates;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("Final results:");
+        this.report(elapsed, this.ticks.sum() / (elapsed / 1e9), this.updates.sum() / (elapsed / 1e9), bots);
+    }
+
+    private void runBot(long deadline) {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(GAME_TICK_RATE_MS);
+        DistributedClient client = null;
+        InProcessMessageBus connection = null;
+        long updatesSeen = 0;
+        this.activeBots.incrementAndGet();
+        try {
+            // Spread the bots over the tick so that they do not all call at once
+            Thread.sleep(ThreadLocalRandom.current().nextLong(GAME_TICK_RATE_MS));
+            long next = System.nanoTime();
+            while (next < deadline) {
+                try {
+                    if (client == null || !client.isRunning()) {
+                        if (client != null) {
+                            this.gameOvers.increment();
+                        }
+                        if (connection != null) {
+                            connection.close();
+                        }
+                        connection = this.bus != null ? this.bus.connect() : null;
+                        client = connection != null ? new DistributedClient(this.nextServer(), true, connection)
+                                : new DistributedClient(this.nextServer(), true);
+                        client.registration();
+                        updatesSeen = 0;
+                    }
+                    client.tick();
+                    this.ticks.increment();
+                    long received = client.getUpdatesReceived();
+                    this.updates.add(received - updatesSeen);
+                    updatesSeen = received;
+                } catch (RemoteException | NotBoundException | RuntimeException e) {
+                    this.errors.increment();
+                    // A failed call is tried again by the next ticks, only a bot that could not join starts over
+                    if (!(e instanceof RemoteException) || client == null || !client.isRunning()) {
+                        this.leave(client);
+                        client = null;
+                    }
+                }
+                next += tickNanos;
+                long now = System.nanoTime();
+                if (next > now) {
+                    TimeUnit.NANOSECONDS.sleep(next - now);
+                } else if (now - next > tickNanos) {
+                    // Too far behind: skip the missed ticks instead of bursting
+                    next = now;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.activeBots.decrementAndGet();
+            if (client != null && client.isRunning()) {
+                this.leave(client);
+            }
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    // Best effort, so that a bot that starts over does not leave its old player on the server
+    private void leave(DistributedClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.terminate();
+        } catch (RemoteException | RuntimeException e) {
+            this.errors.increment();
+        }
+    }
+
+    private void report(long elapsedNanos, double ticksPerSecond, double updatesPerSecond, int bots) {
+        System.out.printf("[%4d s] bots %d, %.1f ticks/s and %.1f updates/s (%.1f and %.1f per bot, target %.1f), %d errors, %d game overs%n",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), bots, ticksPerSecond, updatesPerSecond,
+                bots == 0 ? 0 : ticksPerSecond / bots, bots == 0 ? 0 : updatesPerSecond / bots, 1000.0 / GAME_TICK_RATE_MS,
+                this.errors.sum(), this.gameOvers.sum());
+        this.calls.values().stream()
+                .filter(statistics -> statistics.latency.getCount() > 0)
+                .forEach(statistics -> System.out.printf("    %-20s %s, %d errors%n",
+                        statistics.name, statistics.latency.describeNanos(), statistics.errors.sum()));
+    }
+
+    private static final class CallStatistics {
+        private final String name;
+        private final Histogram latency = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        private CallStatistics(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package it.unibo.agar;
+
+import it.unibo.agar.model.JournalReplayer;
+import it.unibo.agar.model.Player;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * Replays the journal of a game written by the server with {@code -journal <file>}, headless and as fast as
+ * the ticks run, and prints the state reached: {@code -journal <file> [-tick <n>]}.
+ */
+public class Replay {
+    private static final int GAME_TICK_RATE_MS = 30;
+
+    public static void main(String[] args) {
+        Path journal = null;
+        long untilTick = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-journal") && i + 1 < args.length) {
+                journal = Path.of(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-tick") && i + 1 < args.length) {
+                untilTick = Long.parseLong(args[++i]);
+            }
+        }
+        if (journal == null) {
+            System.err.println("Usage: Replay -journal <file> [-tick <n>]");
+            System.exit(1);
+        }
+
+        JournalReplayer.Result result;
+        try {
+            result = JournalReplayer.replay(journal, untilTick);
+        } catch (IOException e) {
+            System.err.println("Could not replay " + journal + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        double seconds = result.nanos() / 1e9;
+        double gameSeconds = result.ticks() * GAME_TICK_RATE_MS / 1000.0;
+        System.out.printf("Replayed %d ticks (%.1f s of game) in %.3f s, %.0f ticks/s, %.0fx real time%n",
+                result.ticks(), gameSeconds, seconds, result.ticks() / seconds, gameSeconds / seconds);
+        System.out.printf("%d registrations, %d checksums verified%s%n", result.registrations(), result.checksumsVerified(),
+                result.diverged() ? ", DIVERGED at tick " + result.divergedAtTick() : "");
+        System.out.printf("At tick %d: %d players, %d foods%n", result.ticks(),
+                result.world().getPlayers().size(), result.world().getFoods().size());
+        result.world().getPlayers().stream()
+                .sorted(Comparator.comparingDouble(Player::getMass).reversed())
+                .limit(10)
+                .forEach(player -> System.out.printf("    %-8s mass %8.1f at (%.1f, %.1f)%n",
+                        player.getId(), player.getMass(), player.getX(), player.getY()));
+    }
+}
@@ -1,67 +1,193 @@
 package it.unibo.agar;
 
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
 import it.unibo.agar.model.DistributedGameStateManager;
+import it.unibo.agar.model.FoodSpawner;
+import it.unibo.agar.model.GameLoop;
 import it.unibo.agar.model.GameServerInterface;
+import it.unibo.agar.model.RabbitMQMessageBus;
+import it.unibo.agar.model.RoomManager;
+import it.unibo.agar.model.WorldCheckpointer;
 import it.unibo.agar.view.GlobalView;
 
 import javax.swing.*;
+import java.awt.*;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.NoSuchObjectException;
 import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.Optional;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 public class Server {
     private static final int GAME_TICK_RATE_MS = 30;
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    private static final long METRICS_LOG_INTERVAL_S = 10;
     private static Optional<GlobalView> globalView = Optional.empty();
     private static DistributedGameStateManager distributedManager = null;
+    private static GameLoop gameLoop = null;
 
     public static void main(String[] args) {
+        double interestRadius = DistributedGameStateManager.DEFAULT_INTEREST_RADIUS;
+        String amqpHost = null;
+        boolean headless = GraphicsEnvironment.isHeadless();
+        int tickThreads = 1;
+        int maxFood = 150;
+        double foodRate = FoodSpawner.Settings.DEFAULT_SPAWNS_PER_TICK;
+        FoodSpawner.Distribution foodDistribution = FoodSpawner.Distribution.UNIFORM;
+        int rooms = 0;
+        int maxRooms = 64;
+        int roomSize = 50;
+        int roomThreads = Runtime.getRuntime().availableProcessors();
+        Long seed = null;
+        Path journal = null;
+        Path checkpoint = null;
+        int checkpointInterval = 100;
+        int bots = 0;
+        int botInterval = 5;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-headless")) {
+                headless = true;
+            } else if (args[i].equalsIgnoreCase("-interest") && i + 1 < args.length) {
+                interestRadius = Double.parseDouble(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-amqp") && i + 1 < args.length) {
+                amqpHost = args[++i];
+            } else if (args[i].equalsIgnoreCase("-threads") && i + 1 < args.length) {
+                tickThreads = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-food") && i + 1 < args.length) {
+                maxFood = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-foodRate") && i + 1 < args.length) {
+                foodRate = Double.parseDouble(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-foodDistribution") && i + 1 < args.length) {
+                foodDistribution = FoodSpawner.Distribution.valueOf(args[++i].toUpperCase());
+            } else if (args[i].equalsIgnoreCase("-rooms") && i + 1 < args.length) {
+                rooms = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-maxRooms") && i + 1 < args.length) {
+                maxRooms = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-roomSize") && i + 1 < args.length) {
+                roomSize = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-roomThreads") && i + 1 < args.length) {
+                roomThreads = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-seed") && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-journal") && i + 1 < args.length) {
+                journal = Path.of(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-checkpoint") && i + 1 < args.length) {
+                checkpoint = Path.of(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-checkpointInterval") && i + 1 < args.length) {
+                checkpointInterval = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-bots") && i + 1 < args.length) {
+                bots = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-botInterval") && i + 1 < args.length) {
+                botInterval = Integer.parseInt(args[++i]);
+            }
+        }
+
+        if (rooms > 0) {
+            final double roomInterestRadius = interestRadius;
+            // One pool for the ticks of all the rooms, rather than one per room
+            final ForkJoinPool roomTickPool = tickThreads > 1 ? new ForkJoinPool(tickThreads) : null;
+            final FoodSpawner.Settings food = FoodSpawner.Settings.defaults(maxFood).withRate(foodRate, foodDistribution);
+            final int roomBots = bots;
+            final int roomBotInterval = botInterval;
+            try {
+                RoomManager roomManager = new RoomManager(LocateRegistry.getRegistry(), roomThreads, GAME_TICK_RATE_MS,
+                        MAX_STEPS_PER_FRAME, Math.max(rooms, maxRooms), roomSize,
+                        () -> {
+                            DistributedGameStateManager room = new DistributedGameStateManager(roomInterestRadius, roomTickPool, food);
+                            if (roomBots > 0) {
+                                room.hostBots(roomBots, roomBotInterval);
+                            }
+                            return room;
+                        });
+                roomManager.start(rooms);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    roomManager.shutdown();
+                    if (roomTickPool != null) {
+                        roomTickPool.shutdown();
+                    }
+                }));
+                System.out.printf("Lobby started with %d rooms on %d threads. Press CTRL-C to exit.%n", rooms, roomThreads);
+            } catch (RemoteException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         try {
-            distributedManager = new DistributedGameStateManager();
+            FoodSpawner.Settings food = FoodSpawner.Settings.defaults(maxFood).withRate(foodRate, foodDistribution);
+            distributedManager = seed != null ? new DistributedGameStateManager(interestRadius, tickThreads, food, seed)
+                    : new DistributedGameStateManager(interestRadius, tickThreads, food);
+            if (bots > 0) {
+                distributedManager.hostBots(bots, botInterval);
+            }
+            if (checkpoint != null) {
+                long startTick = 0;
+                Optional<WorldCheckpointer.Checkpoint> saved = WorldCheckpointer.read(checkpoint);
+                if (saved.isPresent()) {
+                    distributedManager.restore(saved.get());
+                    startTick = saved.get().tick();
+                    System.out.printf("Restored the match at tick %d with %d players from %s%n",
+                            startTick, saved.get().world().getPlayers().size(), checkpoint);
+                }
+                distributedManager.checkpointTo(checkpoint, checkpointInterval, startTick);
+                Runtime.getRuntime().addShutdownHook(new Thread(distributedManager::stopCheckpointing));
+            }
+            if (journal != null && distributedManager.getRegistrationCount() > 0) {
+                System.err.println("The journal needs a match from its start, not journaling the restored one.");
+            } else if (journal != null) {
+                distributedManager.record(journal);
+                Runtime.getRuntime().addShutdownHook(new Thread(distributedManager::stopRecording));
+                System.out.println("Journaling game " + distributedManager.getSeed() + " to " + journal);
+            }
+            if (amqpHost != null) {
+                distributedManager.attach(new RabbitMQMessageBus(amqpHost));
+            }
             var stub = (GameServerInterface) UnicastRemoteObject.exportObject(distributedManager, 0);
             var registry = LocateRegistry.getRegistry();
             registry.rebind("remoteServer", stub);
 
 
-            SwingUtilities.invokeLater(() -> {
-                globalView = Optional.of(new GlobalView(distributedManager));
-                globalView.ifPresent(x -> x.setVisible(true));
-            });
+            final Runnable render;
+            if (headless) {
+                render = () -> { };
+            } else {
+                render = () -> SwingUtilities.invokeLater(() -> globalView.ifPresent(GlobalView::repaintView));
+                SwingUtilities.invokeLater(() -> {
+                    globalView = Optional.of(new GlobalView(distributedManager));
+                    globalView.ifPresent(x -> x.setVisible(true));
+                });
+            }
 
             System.out.println("Game server started. Press CTRL-C to exit.");
 
-            Timer gameLoopTimer = new Timer();
-            gameLoopTimer.scheduleAtFixedRate(new TimerTask() {
-                @Override
-                public void run() {
-                    if(!distributedManager.isRunning()){
-                        this.cancel();
-                        SwingUtilities.invokeLater(() -> globalView.ifPresent(GlobalView::showGameOver));
-                        try {
-                            registry.unbind("remoteServer");
-                        } catch (RemoteException | NotBoundException e) {
-                            throw new RuntimeException(e);
-                        }
-                        try {
-                            UnicastRemoteObject.unexportObject(distributedManager, true);
-                        } catch (NoSuchObjectException e) {
-                            throw new RuntimeException(e);
-                        }
-                    } else {
-                        distributedManager.tick();
-                        SwingUtilities.invokeLater(() -> globalView.ifPresent(GlobalView::repaintView));
-                    }
+            distributedManager.getMetrics().register();
+            ScheduledExecutorService metricsLog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metricsLog.scheduleAtFixedRate(() -> System.out.println("Metrics: " + distributedManager.getMetrics().describe()),
+                    METRICS_LOG_INTERVAL_S, METRICS_LOG_INTERVAL_S, TimeUnit.SECONDS);
+
+            gameLoop = new GameLoop(GAME_TICK_RATE_MS, MAX_STEPS_PER_FRAME, () -> {
+                if(!distributedManager.isRunning()){
+                    gameLoop.stop();
+                    System.out.println("Game over, " + gameLoop.getStatistics());
+                    SwingUtilities.invokeLater(() -> globalView.ifPresent(GlobalView::showGameOver));
+                    shutdown(registry);
+                } else {
+                    distributedManager.tick();
                 }
-            }, 0, GAME_TICK_RATE_MS);
+            }, render);
+            gameLoop.start();
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -72,4 +198,17 @@ public class Server {
             System.err.println(e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static void shutdown(Registry registry) {
+        try {
+            registry.unbind("remoteServer");
+        } catch (RemoteException | NotBoundException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            UnicastRemoteObject.unexportObject(distributedManager, true);
+        } catch (NoSuchObjectException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
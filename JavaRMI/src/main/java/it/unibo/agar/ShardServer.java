@@ -0,0 +1,104 @@
+package it.unibo.agar;
+
+import it.unibo.agar.model.DistributedGameStateManager;
+import it.unibo.agar.model.GameLoop;
+import it.unibo.agar.model.ShardInterface;
+import it.unibo.agar.model.ShardNode;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Runs shards of a world split among several servers, each bound in the registry as {@code shard-<n>}.
+ * With {@code -shard <n> -shards <count>} this JVM runs one shard and finds its neighbours in the registry;
+ * with {@code -local <count>} it runs all of them, calling each other directly. Clients join any of them
+ * with {@code -server shard-<n>}.
+ */
+public class ShardServer {
+    private static final int GAME_TICK_RATE_MS = 30;
+    private static final int MAX_STEPS_PER_FRAME = 5;
+    private static final int WORLD_WIDTH = 1000;
+    private static final int WORLD_HEIGHT = 1000;
+
+    public static void main(String[] args) throws RemoteException {
+        int shard = -1;
+        int shards = 2;
+        boolean local = false;
+        int width = WORLD_WIDTH;
+        int food = 150;
+        double interestRadius = DistributedGameStateManager.DEFAULT_INTEREST_RADIUS;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("-shard") && i + 1 < args.length) {
+                shard = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-shards") && i + 1 < args.length) {
+                shards = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-local") && i + 1 < args.length) {
+                local = true;
+                shards = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-width") && i + 1 < args.length) {
+                width = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-food") && i + 1 < args.length) {
+                food = Integer.parseInt(args[++i]);
+            } else if (args[i].equalsIgnoreCase("-interest") && i + 1 < args.length) {
+                interestRadius = Double.parseDouble(args[++i]);
+            }
+        }
+        if (!local && (shard < 0 || shard >= shards)) {
+            System.err.println("Usage: ShardServer -shard <n> -shards <count> | -local <count>");
+            System.exit(1);
+        }
+
+        Registry registry = LocateRegistry.getRegistry();
+        List<ShardNode> nodes;
+        if (local) {
+            nodes = ShardNode.inProcess(shards, width, WORLD_HEIGHT, food, interestRadius, System.nanoTime());
+        } else {
+            nodes = List.of(new ShardNode(shard, shards, width, WORLD_HEIGHT, food, interestRadius, new Random()));
+        }
+        for (ShardNode node : nodes) {
+            registry.rebind(ShardNode.NAME_PREFIX + node.getIndex(), UnicastRemoteObject.exportObject(node, 0));
+        }
+
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(nodes.size());
+        List<GameLoop> loops = new ArrayList<>();
+        for (ShardNode node : nodes) {
+            GameLoop loop = new GameLoop(GAME_TICK_RATE_MS, MAX_STEPS_PER_FRAME, node::tick, () -> { }, executor);
+            loops.add(loop);
+            loop.start();
+        }
+        if (!local) {
+            // The strip works on its own until its neighbours are bound
+            nodes.get(0).connect(index -> lookup(registry, index));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            loops.forEach(GameLoop::stop);
+            nodes.forEach(node -> {
+                node.shutdown();
+                try {
+                    registry.unbind(ShardNode.NAME_PREFIX + node.getIndex());
+                } catch (RemoteException | NotBoundException e) {
+                    // Registry already gone
+                }
+            });
+            executor.shutdown();
+        }));
+        System.out.printf("Shards %s of %d started. Press CTRL-C to exit.%n",
+                nodes.stream().map(node -> ShardNode.NAME_PREFIX + node.getIndex()).toList(), shards);
+    }
+
+    private static ShardInterface lookup(Registry registry, int shard) {
+        try {
+            return (ShardInterface) registry.lookup(ShardNode.NAME_PREFIX + shard);
+        } catch (RemoteException | NotBoundException e) {
+            return null;
+        }
+    }
+}
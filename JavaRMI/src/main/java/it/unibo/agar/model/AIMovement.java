@@ -1,6 +1,5 @@
 package it.unibo.agar.model;
 
-import java.util.Comparator;
 import java.util.Optional;
 
 /**
@@ -9,28 +8,38 @@ import java.util.Optional;
 public class AIMovement {
 
     private static Optional<Food> nearestFood(final Player player, final World world) {
-        return world.getFoods().stream()
-                .min(Comparator.comparingDouble(player::distanceTo));
+        return world.getFoodGrid().nearest(player.getX(), player.getY());
     }
 
     public static void moveAI(final String playerName, final GameStateManager gameManager) {
         final World world = gameManager.getWorld();
-        final Optional<Player> aiOpt = world.getPlayerById(playerName);
-        if (aiOpt.isPresent()) {
-            final Player ai = aiOpt.get();
-            final Optional<Food> foodOpt = nearestFood(ai, world);
-            if (foodOpt.isPresent()) {
-                Food food = foodOpt.get();
-                final double dx = food.getX() - ai.getX();
-                final double dy = food.getY() - ai.getY();
-                final double distance = food.distanceTo(ai);
-                if (distance > 0) {
-                    gameManager.setPlayerDirection(playerName, dx / distance,  dy / distance);
-                }
-            } else {
-                // No Food, Stop the player movement
-                gameManager.setPlayerDirection(playerName, 0, 0);
+        world.getPlayerById(playerName).ifPresent(ai -> steer(ai, world, gameManager));
+    }
+
+    /**
+     * Steers many AI players at once, all against the same world and its food index, as a server does
+     * for the bots it hosts.
+     */
+    public static void moveAll(final Iterable<String> playerNames, final GameStateManager gameManager) {
+        final World world = gameManager.getWorld();
+        for (final String playerName : playerNames) {
+            world.getPlayerById(playerName).ifPresent(ai -> steer(ai, world, gameManager));
+        }
+    }
+
+    private static void steer(final Player ai, final World world, final GameStateManager gameManager) {
+        final Optional<Food> foodOpt = nearestFood(ai, world);
+        if (foodOpt.isPresent()) {
+            Food food = foodOpt.get();
+            final double dx = food.getX() - ai.getX();
+            final double dy = food.getY() - ai.getY();
+            final double distance = food.distanceTo(ai);
+            if (distance > 0) {
+                gameManager.setPlayerDirection(ai.getId(), dx / distance,  dy / distance);
             }
+        } else {
+            // No Food, Stop the player movement
+            gameManager.setPlayerDirection(ai.getId(), 0, 0);
         }
     }
 }
@@ -0,0 +1,334 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Game engine keeping players and foods in primitive arrays indexed by dense slots, updated in place
+ * during a tick. Readers only see the immutable world published at the end of each tick.
+ * Players meet foods through a grid and each other through a sweep along x, whose order is kept
+ * from one tick to the next since players move little in between.
+ */
+public class ArrayGameStateManager implements GameStateManager {
+
+    private final int width;
+    private final int height;
+    private final EntityArrays players = new EntityArrays();
+    private final EntityArrays foods = new EntityArrays();
+    private final Map<String, Integer> playerSlots = new HashMap<>();
+    private final CellGrid foodGrid = new CellGrid();
+    private int[] sweepOrder = new int[16];
+    private double[] grownMass = new double[0];
+    private double[] afterFoodMass = new double[0];
+    private double[] reach = new double[0];
+    private boolean[] playerEaten = new boolean[0];
+    private boolean[] foodEaten = new boolean[0];
+    private volatile World snapshot;
+
+    public ArrayGameStateManager(final World initialWorld) {
+        this.width = initialWorld.getWidth();
+        this.height = initialWorld.getHeight();
+        initialWorld.getPlayers().forEach(this::addPlayer);
+        initialWorld.getFoods().forEach(f -> foods.add(f.getId(), f.getX(), f.getY(), f.getMass()));
+        publish();
+    }
+
+    @Override
+    public World getWorld() {
+        return snapshot;
+    }
+
+    @Override
+    public synchronized void setPlayerDirection(final String playerId, final double dx, final double dy) {
+        final Integer slot = playerSlots.get(playerId);
+        if (slot != null) {
+            players.dirX[slot] = dx;
+            players.dirY[slot] = dy;
+        }
+    }
+
+    public synchronized void addPlayer(final Player player) {
+        playerSlots.put(player.getId(), players.size);
+        if (sweepOrder.length == players.size) {
+            sweepOrder = Arrays.copyOf(sweepOrder, players.size * 2);
+        }
+        sweepOrder[players.size] = players.size;
+        players.add(player.getId(), player.getX(), player.getY(), player.getMass());
+    }
+
+    public synchronized void removePlayer(final String playerId) {
+        final Integer slot = playerSlots.get(playerId);
+        if (slot != null) {
+            removePlayerAt(slot);
+        }
+    }
+
+    @Override
+    public synchronized void tick() {
+        movePlayers();
+        handleEating();
+        publish();
+    }
+
+    private void movePlayers() {
+        final double speed = DefaultGameStateManager.PLAYER_SPEED;
+        for (int i = 0; i < players.size; i++) {
+            if (players.dirX[i] != 0 || players.dirY[i] != 0) {
+                players.x[i] = Math.max(0, Math.min(width, players.x[i] + players.dirX[i] * speed));
+                players.y[i] = Math.max(0, Math.min(height, players.y[i] + players.dirY[i] * speed));
+                players.views[i] = null;
+            }
+        }
+    }
+
+    private void handleEating() {
+        final int playerCount = players.size;
+        final int foodCount = foods.size;
+        if (grownMass.length < playerCount) {
+            grownMass = new double[players.x.length];
+            afterFoodMass = new double[players.x.length];
+            reach = new double[players.x.length];
+            playerEaten = new boolean[players.x.length];
+        }
+        if (foodEaten.length < foodCount) {
+            foodEaten = new boolean[foods.x.length];
+        }
+        Arrays.fill(playerEaten, 0, playerCount, false);
+        Arrays.fill(foodEaten, 0, foodCount, false);
+        foodGrid.build(foods, width, height);
+
+        for (int i = 0; i < playerCount; i++) {
+            final double px = players.x[i];
+            final double py = players.y[i];
+            final double mass = players.mass[i];
+            final double radius = players.radius[i];
+            double grown = mass;
+
+            final double foodRange = radius + foodGrid.maxRadius;
+            for (int r = foodGrid.row(py - foodRange); r <= foodGrid.row(py + foodRange); r++) {
+                for (int c = foodGrid.column(px - foodRange); c <= foodGrid.column(px + foodRange); c++) {
+                    final int cell = foodGrid.cell(c, r);
+                    for (int k = foodGrid.cellStart[cell]; k < foodGrid.cellStart[cell + 1]; k++) {
+                        final int f = foodGrid.entries[k];
+                        if (Math.hypot(px - foods.x[f], py - foods.y[f]) < radius + foods.radius[f] && mass > foods.mass[f]) {
+                            foodEaten[f] = true;
+                            grown += foods.mass[f];
+                        }
+                    }
+                }
+            }
+            grownMass[i] = grown;
+            afterFoodMass[i] = grown;
+            reach[i] = Math.sqrt(grown / Math.PI);
+        }
+
+        sortSweepOrder();
+        for (int a = 0; a < playerCount; a++) {
+            final int i = sweepOrder[a];
+            final double right = players.x[i] + reach[i];
+            for (int b = a + 1; b < playerCount; b++) {
+                final int o = sweepOrder[b];
+                if (players.x[o] - reach[o] > right) {
+                    break;
+                }
+                if (Math.abs(players.y[i] - players.y[o]) > reach[i] + reach[o]) {
+                    continue;
+                }
+                final double distance = Math.hypot(players.x[i] - players.x[o], players.y[i] - players.y[o]);
+                eat(i, o, distance);
+                eat(o, i, distance);
+            }
+        }
+
+        for (int i = 0; i < playerCount; i++) {
+            if (grownMass[i] != players.mass[i]) {
+                players.setMass(i, grownMass[i]);
+            }
+        }
+        // Removing from the end keeps the slots still to visit in place
+        for (int i = playerCount - 1; i >= 0; i--) {
+            if (playerEaten[i]) {
+                removePlayerAt(i);
+            }
+        }
+        for (int f = foodCount - 1; f >= 0; f--) {
+            if (foodEaten[f]) {
+                foods.removeAt(f);
+            }
+        }
+    }
+
+    // One direction of a candidate pair: the eater grows with its size after food, the eaten is decided on sizes before
+    private void eat(final int eater, final int other, final double distance) {
+        final double threshold = players.mass[other] * EatingManager.MASS_MARGIN;
+        if (distance < reach[eater] + players.radius[other] && afterFoodMass[eater] > threshold) {
+            grownMass[eater] += players.mass[other];
+        }
+        if (distance < players.radius[eater] + players.radius[other] && players.mass[eater] > threshold) {
+            playerEaten[other] = true;
+        }
+    }
+
+    // Insertion sort by left edge, linear when the order of the previous tick still almost holds
+    private void sortSweepOrder() {
+        for (int a = 1; a < players.size; a++) {
+            final int slot = sweepOrder[a];
+            final double left = players.x[slot] - reach[slot];
+            int b = a - 1;
+            while (b >= 0 && players.x[sweepOrder[b]] - reach[sweepOrder[b]] > left) {
+                sweepOrder[b + 1] = sweepOrder[b];
+                b--;
+            }
+            sweepOrder[b + 1] = slot;
+        }
+    }
+
+    private void removePlayerAt(final int slot) {
+        playerSlots.remove(players.ids[slot]);
+        final int last = players.size - 1;
+        if (slot != last) {
+            playerSlots.put(players.ids[last], slot);
+        }
+        // The sweep order drops the slot and follows the last player into it
+        int kept = 0;
+        for (int a = 0; a < players.size; a++) {
+            final int entry = sweepOrder[a];
+            if (entry != slot) {
+                sweepOrder[kept++] = entry == last ? slot : entry;
+            }
+        }
+        players.removeAt(slot);
+    }
+
+    private void publish() {
+        final List<Player> playerViews = new ArrayList<>(players.size);
+        for (int i = 0; i < players.size; i++) {
+            if (players.views[i] == null) {
+                players.views[i] = new Player(players.ids[i], players.x[i], players.y[i], players.mass[i]);
+            }
+            playerViews.add((Player) players.views[i]);
+        }
+        final List<Food> foodViews = new ArrayList<>(foods.size);
+        for (int f = 0; f < foods.size; f++) {
+            if (foods.views[f] == null) {
+                foods.views[f] = new Food(foods.ids[f], foods.x[f], foods.y[f], foods.mass[f]);
+            }
+            foodViews.add((Food) foods.views[f]);
+        }
+        snapshot = new World(width, height, playerViews, foodViews);
+    }
+
+    private static final class EntityArrays {
+        String[] ids = new String[16];
+        double[] x = new double[16];
+        double[] y = new double[16];
+        double[] mass = new double[16];
+        double[] radius = new double[16];
+        double[] dirX = new double[16];
+        double[] dirY = new double[16];
+        Entity[] views = new Entity[16];
+        int size;
+
+        void add(final String id, final double px, final double py, final double m) {
+            if (size == x.length) {
+                final int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                x = Arrays.copyOf(x, capacity);
+                y = Arrays.copyOf(y, capacity);
+                mass = Arrays.copyOf(mass, capacity);
+                radius = Arrays.copyOf(radius, capacity);
+                dirX = Arrays.copyOf(dirX, capacity);
+                dirY = Arrays.copyOf(dirY, capacity);
+                views = Arrays.copyOf(views, capacity);
+            }
+            ids[size] = id;
+            x[size] = px;
+            y[size] = py;
+            dirX[size] = 0;
+            dirY[size] = 0;
+            views[size] = null;
+            setMass(size, m);
+            size++;
+        }
+
+        void setMass(final int slot, final double m) {
+            mass[slot] = m;
+            radius[slot] = Math.sqrt(m / Math.PI);
+            views[slot] = null;
+        }
+
+        // Moves the last entity into the freed slot
+        void removeAt(final int slot) {
+            final int last = --size;
+            ids[slot] = ids[last];
+            x[slot] = x[last];
+            y[slot] = y[last];
+            mass[slot] = mass[last];
+            radius[slot] = radius[last];
+            dirX[slot] = dirX[last];
+            dirY[slot] = dirY[last];
+            views[slot] = views[last];
+            ids[last] = null;
+            views[last] = null;
+        }
+    }
+
+    private static final class CellGrid {
+        private static final double MIN_CELL_SIZE = 32.0;
+
+        int[] cellStart = new int[2];
+        int[] entries = new int[0];
+        private int[] cursor = new int[1];
+        private int[] cellOf = new int[0];
+        private double cellSize;
+        private int columns;
+        private int rows;
+        double maxRadius;
+
+        void build(final EntityArrays arrays, final int width, final int height) {
+            maxRadius = 0;
+            for (int i = 0; i < arrays.size; i++) {
+                maxRadius = Math.max(maxRadius, arrays.radius[i]);
+            }
+            cellSize = Math.max(MIN_CELL_SIZE, 2 * maxRadius);
+            columns = Math.max(1, (int) Math.ceil(width / cellSize));
+            rows = Math.max(1, (int) Math.ceil(height / cellSize));
+            final int cells = columns * rows;
+            if (cellStart.length < cells + 1) {
+                cellStart = new int[cells + 1];
+                cursor = new int[cells];
+            }
+            if (entries.length < arrays.size) {
+                entries = new int[arrays.x.length];
+                cellOf = new int[arrays.x.length];
+            }
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+            for (int i = 0; i < arrays.size; i++) {
+                cellOf[i] = cell(column(arrays.x[i]), row(arrays.y[i]));
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < cells; c++) {
+                cellStart[c + 1] += cellStart[c];
+            }
+            System.arraycopy(cellStart, 0, cursor, 0, cells);
+            for (int i = 0; i < arrays.size; i++) {
+                entries[cursor[cellOf[i]]++] = i;
+            }
+        }
+
+        int column(final double px) {
+            return Math.min(Math.max((int) Math.floor(px / cellSize), 0), columns - 1);
+        }
+
+        int row(final double py) {
+            return Math.min(Math.max((int) Math.floor(py / cellSize), 0), rows - 1);
+        }
+
+        int cell(final int column, final int row) {
+            return row * columns + column;
+        }
+    }
+}
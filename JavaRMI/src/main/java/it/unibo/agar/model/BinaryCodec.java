@@ -0,0 +1,425 @@
+package it.unibo.agar.model;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Versioned binary format for worlds, entities and messages.
+ * Ids like "p12" are written as their number, coordinates and masses as varints in 1/16 of a unit
+ * (or as raw doubles for exact encodings), lengths as varints. Encoding reuses the buffer of the codec,
+ * so an instance must not be shared between threads.
+ */
+public class BinaryCodec {
+
+    public static final byte FORMAT_VERSION = 3;
+    private static final double QUANTUM = 16.0;
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int MAX_INTERNED_NUMBER = 1 << 20;
+    // Interned entries over all the prefixes, so that a peer sending large numbers cannot grow the tables unbounded
+    private static final int MAX_INTERNED_SLOTS = 1 << 21;
+
+    private static final byte FLAG_EXACT = 1;
+
+    private static final byte WORLD = 1;
+    private static final byte REGISTRATION_ACK = 2;
+    private static final byte WORLD_DELTA = 3;
+    private static final byte CLIENT_INPUT = 4;
+    private static final byte TICK_REPLY = 5;
+    private static final byte GAME_OVER = 6;
+    private static final byte PLAYER_UPDATE = 7;
+    private static final byte UNREGISTRATION = 8;
+
+    private static final ThreadLocal<BinaryCodec> WIRE = ThreadLocal.withInitial(() -> new BinaryCodec(false));
+    private static final ThreadLocal<Histogram> WIRE_SIZES = new ThreadLocal<>();
+
+    private final boolean exact;
+    private final String[][] interned = new String[128][];
+    private int internedSlots = 0;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private boolean exactInput;
+
+    /**
+     * @param exact whether coordinates and masses are written as doubles instead of being quantized
+     */
+    public BinaryCodec(final boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * Encodes the message into the buffer of this codec; the returned buffer is valid until the next call.
+     */
+    public ByteBuffer encode(final Object message) {
+        buffer.clear();
+        ensure(3);
+        buffer.put(FORMAT_VERSION);
+        buffer.put(exact ? FLAG_EXACT : 0);
+        if (message instanceof World world) {
+            buffer.put(WORLD);
+            writeWorld(world);
+        } else if (message instanceof Messages.RegistrationACK ack) {
+            buffer.put(REGISTRATION_ACK);
+            writeId(ack.playerId());
+            writeWorld(ack.world());
+        } else if (message instanceof Messages.WorldDelta delta) {
+            buffer.put(WORLD_DELTA);
+            writeDelta(delta);
+        } else if (message instanceof Messages.ClientInput input) {
+            buffer.put(CLIENT_INPUT);
+            writeId(input.playerId());
+            writeDirection(input.dirX());
+            writeDirection(input.dirY());
+            writeVarLong(input.inputSequence());
+            writeSignedLong(input.lastVersion());
+        } else if (message instanceof Messages.TickReply reply) {
+            buffer.put(TICK_REPLY);
+            writeBoolean(reply.playing());
+            writeBoolean(reply.update() != null);
+            if (reply.update() != null) {
+                writeDelta(reply.update());
+            }
+            writeVarLong(reply.lastInput());
+            writeVarLong(reply.lastInputTicks());
+        } else if (message instanceof Messages.GameOver gameOver) {
+            buffer.put(GAME_OVER);
+            writeId(gameOver.playerId());
+        } else if (message instanceof ServerEvents.PlayerUpdate update) {
+            buffer.put(PLAYER_UPDATE);
+            writeId(update.playerId());
+            writeDirection(update.dirX());
+            writeDirection(update.dirY());
+            writeVarLong(update.inputSequence());
+        } else if (message instanceof ServerEvents.Unregistration unregistration) {
+            buffer.put(UNREGISTRATION);
+            writeId(unregistration.playerId());
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + message.getClass().getName());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public byte[] toBytes(final Object message) {
+        final ByteBuffer encoded = encode(message);
+        final byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
+    }
+
+    public Object decode(final ByteBuffer input) {
+        final byte version = input.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported codec version " + version);
+        }
+        exactInput = (input.get() & FLAG_EXACT) != 0;
+        final byte type = input.get();
+        return switch (type) {
+            case WORLD -> readWorld(input);
+            case REGISTRATION_ACK -> new Messages.RegistrationACK(readId(input), readWorld(input));
+            case WORLD_DELTA -> readDelta(input);
+            case CLIENT_INPUT -> new Messages.ClientInput(readId(input), readDirection(input), readDirection(input),
+                    readVarLong(input), readSignedLong(input));
+            case TICK_REPLY -> {
+                final boolean playing = readBoolean(input);
+                final Messages.WorldDelta update = readBoolean(input) ? readDelta(input) : null;
+                yield new Messages.TickReply(playing, update, readVarLong(input), (int) readVarLong(input));
+            }
+            case GAME_OVER -> new Messages.GameOver(readId(input));
+            case PLAYER_UPDATE -> new ServerEvents.PlayerUpdate(readId(input), readDirection(input), readDirection(input),
+                    readVarLong(input));
+            case UNREGISTRATION -> new ServerEvents.Unregistration(readId(input));
+            default -> throw new IllegalArgumentException("Unknown message type " + type);
+        };
+    }
+
+    public Object decode(final byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Encoding with the wire codec of the calling thread, for transports that need a byte array.
+     */
+    public static byte[] encodeForWire(final Object message) {
+        final byte[] bytes = WIRE.get().toBytes(message);
+        final Histogram sizes = WIRE_SIZES.get();
+        if (sizes != null) {
+            sizes.record(bytes.length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Records the size of what the calling thread encodes for the wire from now on in the histogram, until it is
+     * given another one. RMI marshals the reply of a call on the thread that ran it, so a server setting its own
+     * histogram at the start of every call and tick gets the sizes of its own payloads.
+     */
+    public static void recordWireSizesIn(final Histogram sizes) {
+        WIRE_SIZES.set(sizes);
+    }
+
+    public static Object decodeFromWire(final byte[] bytes) {
+        return WIRE.get().decode(bytes);
+    }
+
+    /**
+     * Stand-in written by Java serialization (and so by RMI) in place of a message, carrying its binary encoding.
+     */
+    static final class Encoded implements Serializable {
+        private final byte[] bytes;
+
+        Encoded(final Object message) {
+            this.bytes = encodeForWire(message);
+        }
+
+        private Object readResolve() {
+            return decodeFromWire(bytes);
+        }
+    }
+
+    private void writeWorld(final World world) {
+        writeVarLong(world.getWidth());
+        writeVarLong(world.getHeight());
+        writePlayers(world.getPlayers());
+        writeFoods(world.getFoods());
+    }
+
+    private World readWorld(final ByteBuffer input) {
+        final int width = (int) readVarLong(input);
+        final int height = (int) readVarLong(input);
+        final List<Player> players = readPlayers(input);
+        return new World(width, height, players, readFoods(input));
+    }
+
+    private void writeDelta(final Messages.WorldDelta delta) {
+        writeSignedLong(delta.baseVersion());
+        writeSignedLong(delta.version());
+        writeVarLong(delta.width());
+        writeVarLong(delta.height());
+        writePlayers(delta.players());
+        writeIds(delta.removedPlayers());
+        writeFoods(delta.addedFoods());
+        writeIds(delta.removedFoods());
+    }
+
+    private Messages.WorldDelta readDelta(final ByteBuffer input) {
+        final long baseVersion = readSignedLong(input);
+        final long version = readSignedLong(input);
+        final int width = (int) readVarLong(input);
+        final int height = (int) readVarLong(input);
+        final List<Player> players = readPlayers(input);
+        final List<String> removedPlayers = readIds(input);
+        final List<Food> addedFoods = readFoods(input);
+        return new Messages.WorldDelta(baseVersion, version, width, height, players, removedPlayers, addedFoods, readIds(input));
+    }
+
+    private void writePlayers(final List<Player> players) {
+        writeVarLong(players.size());
+        for (final Player player : players) {
+            writeEntity(player);
+        }
+    }
+
+    private List<Player> readPlayers(final ByteBuffer input) {
+        // An id and three coordinates take at least a byte each
+        final int size = readCount(input, 4);
+        final List<Player> players = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            players.add(new Player(readId(input), readCoordinate(input), readCoordinate(input), readCoordinate(input)));
+        }
+        return players;
+    }
+
+    private void writeFoods(final List<Food> foods) {
+        writeVarLong(foods.size());
+        for (final Food food : foods) {
+            writeEntity(food);
+        }
+    }
+
+    private List<Food> readFoods(final ByteBuffer input) {
+        // An id and three coordinates take at least a byte each
+        final int size = readCount(input, 4);
+        final List<Food> foods = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            foods.add(new Food(readId(input), readCoordinate(input), readCoordinate(input), readCoordinate(input)));
+        }
+        return foods;
+    }
+
+    private void writeEntity(final Entity entity) {
+        writeId(entity.getId());
+        writeCoordinate(entity.getX());
+        writeCoordinate(entity.getY());
+        writeCoordinate(entity.getMass());
+    }
+
+    private void writeIds(final List<String> ids) {
+        writeVarLong(ids.size());
+        for (final String id : ids) {
+            writeId(id);
+        }
+    }
+
+    private List<String> readIds(final ByteBuffer input) {
+        final int size = readCount(input, 1);
+        final List<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(readId(input));
+        }
+        return ids;
+    }
+
+    // An id made of an ASCII letter and a number is written as (number * 128 + letter) * 2, any other as its length * 2 + 1
+    private void writeId(final String id) {
+        final long number = internableNumber(id);
+        if (number >= 0) {
+            writeVarLong((number * 128 + id.charAt(0)) << 1);
+        } else {
+            final byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(((long) bytes.length << 1) | 1);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private String readId(final ByteBuffer input) {
+        final long value = readVarLong(input);
+        if ((value & 1) == 1) {
+            final long length = value >>> 1;
+            if (length > input.remaining()) {
+                throw new IllegalArgumentException("Id of " + length + " bytes with " + input.remaining() + " left");
+            }
+            final byte[] bytes = new byte[(int) length];
+            input.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        final char prefix = (char) ((value >>> 1) % 128);
+        final long number = (value >>> 1) / 128;
+        if (number >= MAX_INTERNED_NUMBER || !Character.isLetter(prefix)) {
+            return prefix + Long.toString(number);
+        }
+        String[] table = interned[prefix];
+        if (table == null || table.length <= number) {
+            final int length = (int) Math.max(number + 1, table == null ? 256 : table.length * 2L);
+            final int grown = length - (table == null ? 0 : table.length);
+            if (internedSlots + grown > MAX_INTERNED_SLOTS) {
+                return prefix + Long.toString(number);
+            }
+            internedSlots += grown;
+            table = Arrays.copyOf(table == null ? new String[0] : table, length);
+            interned[prefix] = table;
+        }
+        final int index = (int) number;
+        if (table[index] == null) {
+            table[index] = prefix + Integer.toString(index);
+        }
+        return table[index];
+    }
+
+    private static long internableNumber(final String id) {
+        final int length = id.length();
+        if (length < 2 || length > 10 || id.charAt(0) >= 128 || !Character.isLetter(id.charAt(0))
+                || (id.charAt(1) == '0' && length > 2)) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 1; i < length; i++) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private void writeCoordinate(final double value) {
+        if (exact) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        } else {
+            writeSignedLong(Math.round(value * QUANTUM));
+        }
+    }
+
+    private double readCoordinate(final ByteBuffer input) {
+        return exactInput ? input.getDouble() : readSignedLong(input) / QUANTUM;
+    }
+
+    private void writeDirection(final double value) {
+        if (exact) {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        } else {
+            ensure(Float.BYTES);
+            buffer.putFloat((float) value);
+        }
+    }
+
+    private double readDirection(final ByteBuffer input) {
+        return exactInput ? input.getDouble() : input.getFloat();
+    }
+
+    private void writeBoolean(final boolean value) {
+        ensure(1);
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    private static boolean readBoolean(final ByteBuffer input) {
+        return input.get() != 0;
+    }
+
+    private void writeSignedLong(final long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedLong(final ByteBuffer input) {
+        final long value = readVarLong(input);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Length of a list whose elements take at least the given bytes, checked against the input left
+     * before anything is allocated for it.
+     */
+    private static int readCount(final ByteBuffer input, final int minBytes) {
+        final long count = readVarLong(input);
+        if (count < 0 || count > input.remaining() / minBytes) {
+            throw new IllegalArgumentException("List of " + count + " elements with " + input.remaining() + " bytes left");
+        }
+        return (int) count;
+    }
+
+    private static long readVarLong(final ByteBuffer input) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private void ensure(final int bytes) {
+        if (buffer.remaining() < bytes) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
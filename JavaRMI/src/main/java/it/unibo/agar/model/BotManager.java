@@ -0,0 +1,141 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * AI players living inside the server, to keep a game at a target number of players. Bots join and leave
+ * the world of the engine directly, a few per tick, making room for the players that join; they are steered
+ * by {@link AIMovement}, each one deciding again only every few ticks, in turns so that the work of a tick
+ * stays the same. Bots do not win: one that grows to the winning size leaves and a new bot takes its place.
+ * Bot ids are the prefix followed by a number, which no player id issued to a client has.
+ */
+public class BotManager {
+
+    public static final String ID_PREFIX = "b";
+    private static final int CHANGES_PER_TICK = 5;
+
+    private final ServerGameStateManager game;
+    private final int targetPlayers;
+    private final int decisionInterval;
+    private final double maxMass;
+    private final Random random;
+    // Bot ids by their number, which also gives the turn of each bot
+    private final Map<String, Integer> bots = new LinkedHashMap<>();
+    private int nextBot = 1;
+    private long ticks = 0;
+
+    /**
+     * @param targetPlayers    players, humans and bots, the game is kept at
+     * @param decisionInterval ticks between two decisions of the same bot
+     * @param maxMass          mass at which a bot leaves the game
+     */
+    public BotManager(final ServerGameStateManager game, final int targetPlayers, final int decisionInterval, final double maxMass,
+                      final Random random) {
+        this.game = game;
+        this.targetPlayers = targetPlayers;
+        this.decisionInterval = Math.max(1, decisionInterval);
+        this.maxMass = maxMass;
+        this.random = random;
+    }
+
+    /**
+     * Takes charge of the bots found in a restored world, so that new ones do not reuse their ids.
+     */
+    public void adopt(final World world) {
+        world.getPlayers().stream()
+                .map(Player::getId)
+                .filter(BotManager::isBot)
+                .forEach(id -> {
+                    final int number = numberOf(id);
+                    bots.put(id, number);
+                    nextBot = Math.max(nextBot, number + 1);
+                });
+    }
+
+    /**
+     * Whether the id has the form of the ones given to bots, for worlds that do not say who the bots were.
+     */
+    public static boolean isBot(final String playerId) {
+        return numberOf(playerId) > 0;
+    }
+
+    /**
+     * Whether the player is one of the bots of this manager.
+     */
+    public boolean manages(final String playerId) {
+        return bots.containsKey(playerId);
+    }
+
+    // The number of a bot id, -1 for any other id
+    private static int numberOf(final String playerId) {
+        if (!playerId.startsWith(ID_PREFIX)) {
+            return -1;
+        }
+        final String suffix = playerId.substring(ID_PREFIX.length());
+        try {
+            final int number = Integer.parseInt(suffix);
+            return number > 0 && suffix.equals(Integer.toString(number)) ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs before the tick of the engine: forgets the bots eaten, retires the ones grown too big, adds or retires
+     * some to approach the target and steers the bots whose turn it is.
+     */
+    public void tick(final int humanPlayers) {
+        final World world = game.getWorld();
+        bots.keySet().removeIf(id -> world.getPlayerById(id).isEmpty());
+        world.getPlayers().stream()
+                .filter(player -> player.getMass() >= maxMass && bots.remove(player.getId()) != null)
+                .forEach(player -> game.removePlayer(player.getId()));
+        final int wanted = Math.max(0, targetPlayers - humanPlayers);
+        if (bots.size() < wanted) {
+            for (int i = 0; i < CHANGES_PER_TICK && bots.size() < wanted; i++) {
+                spawn(world);
+            }
+        } else if (bots.size() > wanted) {
+            retire(world, Math.min(CHANGES_PER_TICK, bots.size() - wanted));
+        }
+
+        final int turn = (int) (ticks++ % decisionInterval);
+        final List<String> deciding = new ArrayList<>(bots.size() / decisionInterval + 1);
+        bots.forEach((id, number) -> {
+            if (number % decisionInterval == turn) {
+                deciding.add(id);
+            }
+        });
+        AIMovement.moveAll(deciding, game);
+    }
+
+    private void spawn(final World world) {
+        final int number = nextBot++;
+        final String id = ID_PREFIX + number;
+        game.addPlayer(new Player(id, random.nextInt(world.getWidth()), random.nextInt(world.getHeight()), Player.INITIAL_MASS));
+        bots.put(id, number);
+        // A new bot takes its first decision right away, not at its turn
+        AIMovement.moveAI(id, game);
+    }
+
+    // The smallest bots leave first, they change the game the least
+    private void retire(final World world, final int count) {
+        world.getPlayers().stream()
+                .filter(player -> bots.containsKey(player.getId()))
+                .sorted(Comparator.comparingDouble(Player::getMass))
+                .limit(count)
+                .forEach(player -> {
+                    game.removePlayer(player.getId());
+                    bots.remove(player.getId());
+                });
+    }
+
+    public int getBots() {
+        return bots.size();
+    }
+}
@@ -1,47 +1,123 @@
 package it.unibo.agar.model;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Client side of the game: the local player is predicted from the inputs the server has not applied yet,
+ * while the other players are drawn slightly in the past, interpolated between the worlds received.
+ */
 public class ClientGameStateManager extends DefaultGameStateManager{
+    public static final long DEFAULT_INTERPOLATION_DELAY_MILLIS = 100;
+    private static final int MAX_PENDING_INPUTS = 64;
+
     private final String playerId;
+    private final long interpolationDelayNanos;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final Deque<PendingInput> pendingInputs = new ArrayDeque<>();
+    private long inputSequence = 0;
+    private Player predicted;
 
     public String getPlayerId() {
         return playerId;
     }
 
     public ClientGameStateManager(World initialWorld, String playerId) {
+        this(initialWorld, playerId, DEFAULT_INTERPOLATION_DELAY_MILLIS);
+    }
+
+    public ClientGameStateManager(World initialWorld, String playerId, long interpolationDelayMillis) {
         super(initialWorld);
         this.playerId = playerId;
+        this.interpolationDelayNanos = TimeUnit.MILLISECONDS.toNanos(interpolationDelayMillis);
+        this.predicted = initialWorld.getPlayerById(playerId).orElse(null);
+        this.snapshots.add(System.nanoTime(), initialWorld);
+    }
+
+    /**
+     * Adopts the world of the server as it is, dropping the inputs not yet applied.
+     */
+    public synchronized void updateState(World world){
+        this.reconcile(world, this.inputSequence, Integer.MAX_VALUE);
     }
 
-    private World movePlayer(final World currentWorld) {
-        Player player = currentWorld.getPlayerById(playerId).get();
-        Position direction = super.playerDirections.getOrDefault(player.getId(), Position.ZERO);
-        final double newX = player.getX() + direction.x() * PLAYER_SPEED;
-        final double newY = player.getY() + direction.y() * PLAYER_SPEED;
-        Player movedPlayer = player.moveTo(newX, newY);
-        List<Player> updatedPlayers = new ArrayList<>(currentWorld.removePlayers(List.of(player)).getPlayers());
-        updatedPlayers.add(movedPlayer);
-        return new World(currentWorld.getWidth(), currentWorld.getHeight(), updatedPlayers, currentWorld.getFoods());
-    }
-
-    public void updateState(World world){
-        if(world.getPlayerById(this.playerId).isPresent()){
-            List<Player> updatedPlayers = new ArrayList<>(world.removePlayers(List.of(world.getPlayerById(this.playerId).get())).getPlayers());
-            Player currentPlayer = super.getWorld().getPlayerById(this.playerId).get();
-            updatedPlayers.add(new Player(currentPlayer.getId(), currentPlayer.getX(), currentPlayer.getY(),
-                    world.getPlayerById(this.playerId).get().getMass()));
-            super.updateWorld(new World(world.getWidth(), world.getHeight(), updatedPlayers, world.getFoods()));
+    /**
+     * Takes the world of the server, authoritative up to the given input applied for the given ticks, and replays
+     * on the local player the steps predicted after them. A player missing from the world has nothing to predict.
+     */
+    public synchronized void reconcile(World world, long lastAppliedInput, int appliedTicks) {
+        this.snapshots.add(System.nanoTime(), world);
+        while (!this.pendingInputs.isEmpty() && this.pendingInputs.peekFirst().sequence < lastAppliedInput) {
+            this.pendingInputs.removeFirst();
         }
+        Optional<Player> player = world.getPlayerById(this.playerId);
+        if (player.isEmpty()) {
+            this.predicted = null;
+            this.pendingInputs.clear();
+            return;
+        }
+        Player replayed = player.get();
+        for (PendingInput input : this.pendingInputs) {
+            int applied = input.sequence == lastAppliedInput ? appliedTicks : 0;
+            for (int step = applied; step < input.steps; step++) {
+                replayed = movePlayer(world, replayed, input.direction);
+            }
+        }
+        this.predicted = replayed;
     }
 
+    /**
+     * One local step: the direction of the player is recorded as a new input when it changes.
+     */
     @Override
-    public void tick() {
-        super.world = this.movePlayer(super.world);
+    public synchronized void tick() {
+        Position direction = this.getPlayerDirection(this.playerId);
+        if (this.pendingInputs.isEmpty() || !this.pendingInputs.peekLast().direction.equals(direction)) {
+            if (this.pendingInputs.size() == MAX_PENDING_INPUTS) {
+                this.pendingInputs.removeFirst();
+            }
+            this.pendingInputs.addLast(new PendingInput(++this.inputSequence, direction));
+        }
+        this.pendingInputs.peekLast().steps++;
+        if (this.predicted != null) {
+            this.predicted = movePlayer(super.world, this.predicted, direction);
+        }
+        super.world = this.compose(this.snapshots.interpolate(System.nanoTime() - this.interpolationDelayNanos));
+    }
+
+    private World compose(World interpolated) {
+        if (this.predicted == null) {
+            return interpolated;
+        }
+        List<Player> players = new ArrayList<>(interpolated.getPlayers().size() + 1);
+        interpolated.getPlayers().stream().filter(p -> !p.getId().equals(this.playerId)).forEach(players::add);
+        players.add(this.predicted);
+        return new World(interpolated.getWidth(), interpolated.getHeight(), players, interpolated.getFoods());
+    }
+
+    /**
+     * Sequence of the latest input, to be sent with the current direction.
+     */
+    public synchronized long getInputSequence() {
+        return this.inputSequence;
     }
 
     public Position getDirection(){
-        return super.playerDirections.get(playerId);
+        return this.getPlayerDirection(this.playerId);
+    }
+
+    private static final class PendingInput {
+        private final long sequence;
+        private final Position direction;
+        private int steps;
+
+        private PendingInput(long sequence, Position direction) {
+            this.sequence = sequence;
+            this.direction = direction;
+        }
     }
 }
@@ -9,6 +9,7 @@ public class DefaultGameStateManager implements GameStateManager {
     private static final Random random = new Random();
     protected World world;
     protected final Map<String, Position> playerDirections;
+    protected FoodSpawner foodSpawner = new FoodSpawner(FoodSpawner.Settings.defaults(MAX_FOOD_ITEMS), random);
 
 
     public DefaultGameStateManager(final World initialWorld) {
@@ -30,65 +31,43 @@ public class DefaultGameStateManager implements GameStateManager {
         }
     }
 
+    public synchronized Position getPlayerDirection(final String playerId) {
+        return this.playerDirections.getOrDefault(playerId, Position.ZERO);
+    }
+
     public void tick() {
-        this.world = handleEating(moveAllPlayers(this.world));
+        this.world = foodSpawner.refill(handleEating(moveAllPlayers(this.world)));
         cleanupPlayerDirections();
     }
 
-    private World moveAllPlayers(final World currentWorld) {
+    protected World moveAllPlayers(final World currentWorld) {
         final List<Player> updatedPlayers = currentWorld.getPlayers().stream()
-            .map(player -> {
-                Position direction = playerDirections.getOrDefault(player.getId(), Position.ZERO);
-                final double newX = player.getX() + direction.x() * PLAYER_SPEED;
-                final double newY = player.getY() + direction.y() * PLAYER_SPEED;
-                return player.moveTo(newX, newY);
-            })
+            .map(player -> movePlayer(currentWorld, player, playerDirections.getOrDefault(player.getId(), Position.ZERO)))
             .collect(Collectors.toList());
 
         return new World(currentWorld.getWidth(), currentWorld.getHeight(), updatedPlayers, currentWorld.getFoods());
     }
 
-    public World handleEating(final World currentWorld) {
-        final List<Player> updatedPlayers = currentWorld.getPlayers().stream()
-                .map(player -> growPlayer(currentWorld, player))
-                .toList();
-
-        final List<Food> foodsToRemove = currentWorld.getPlayers().stream()
-                .flatMap(player -> eatenFoods(currentWorld, player).stream())
-                .distinct()
-                .toList();
-
-        final List<Player> playersToRemove = currentWorld.getPlayers().stream()
-                .flatMap(player -> eatenPlayers(currentWorld, player).stream())
-                .distinct()
-                .toList();
-
-        return new World(currentWorld.getWidth(), currentWorld.getHeight(), updatedPlayers, currentWorld.getFoods())
-                .removeFoods(foodsToRemove)
-                .removePlayers(playersToRemove);
-    }
-
-    protected Player growPlayer(final World world, final Player player) {
-        final Player afterFood = eatenFoods(world, player).stream()
-                .reduce(player, Player::grow, (p1, p2) -> p1);
-
-        return eatenPlayers(world, afterFood).stream()
-                .reduce(afterFood, Player::grow, (p1, p2) -> p1);
-    }
-
-    protected List<Food> eatenFoods(final World world, final Player player) {
-        return world.getFoods().stream()
-                .filter(food -> EatingManager.canEatFood(player, food))
-                .toList();
+    /**
+     * One step of a player along its direction, kept inside the bounds of the world.
+     */
+    protected static Player movePlayer(final World world, final Player player, final Position direction) {
+        if (direction.x() == 0 && direction.y() == 0) {
+            return player;
+        }
+        final double newX = Math.max(0, Math.min(world.getWidth(), player.getX() + direction.x() * PLAYER_SPEED));
+        final double newY = Math.max(0, Math.min(world.getHeight(), player.getY() + direction.y() * PLAYER_SPEED));
+        return player.moveTo(newX, newY);
     }
 
-    protected List<Player> eatenPlayers(final World world, final Player player) {
-        return world.getPlayersExcludingSelf(player).stream()
-                .filter(other -> EatingManager.canEatPlayer(player, other))
-                .toList();
+    public World handleEating(final World currentWorld) {
+        final EatingManager.EatingResult eating = EatingManager.resolve(currentWorld);
+        return new World(currentWorld.getWidth(), currentWorld.getHeight(), eating.players(), currentWorld.getFoods())
+                .removeFoods(eating.eatenFoods())
+                .removePlayers(eating.eatenPlayers());
     }
 
-    private synchronized void cleanupPlayerDirections() {
+    protected synchronized void cleanupPlayerDirections() {
         List<String> currentPlayerIds = this.world.getPlayers().stream()
                 .map(Player::getId)
                 .collect(Collectors.toList());
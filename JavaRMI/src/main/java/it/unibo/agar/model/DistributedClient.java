@@ -1,54 +1,284 @@
 package it.unibo.agar.model;
 
 import java.rmi.RemoteException;
+import java.util.concurrent.ExecutorService;
 
+/**
+ * Client of a game server. The tick only advances the local simulation and never waits on the network:
+ * remote calls run on their own (virtual, when available) threads, one at a time, and their replies are
+ * merged into the local state by the tick that follows. A failed call is reported once, by the next tick,
+ * and the calls go on at the following ticks.
+ */
 public class DistributedClient {
+    private static final ExecutorService NETWORK = VirtualThreads.newPerTaskExecutor("client-network");
+
     private String playerId = "";
     private ClientGameStateManager stateManager;
+    private World replica;
+    private long replicaVersion = WorldReplicator.NO_VERSION;
+    private boolean replicaChanged = false;
+    private boolean resync = false;
 
     private boolean running = false;
-    private final GameServerInterface remoteServer;
+    private GameServerInterface remoteServer;
+    private final MessageBus bus;
     private final boolean AI;
+    private final int exchangeInterval;
+    private final long interpolationDelayMillis;
+    private int ticksSinceExchange = 0;
+    // Calls in flight, at most one of each; replies of an older generation, before a rejoin, are dropped
+    private boolean exchanging = false;
+    private boolean publishing = false;
+    private long generation = 0;
+    private RemoteException failure = null;
+    private long updatesReceived = 0;
 
     public DistributedClient(GameServerInterface remoteServer, boolean AI) {
+        this(remoteServer, AI, null);
+    }
+
+    /**
+     * Polls the server only every given number of ticks, predicting the local player in between
+     * and drawing the others the given delay in the past.
+     */
+    public DistributedClient(GameServerInterface remoteServer, boolean AI, int exchangeInterval, long interpolationDelayMillis) {
+        this(remoteServer, AI, null, exchangeInterval, interpolationDelayMillis);
+    }
+
+    /**
+     * With a bus the client receives the world pushed by the server every tick and sends its inputs
+     * on the bus, using RMI only to register, leave and resync.
+     */
+    public DistributedClient(GameServerInterface remoteServer, boolean AI, MessageBus bus) {
+        this(remoteServer, AI, bus, 1, ClientGameStateManager.DEFAULT_INTERPOLATION_DELAY_MILLIS);
+    }
+
+    private DistributedClient(GameServerInterface remoteServer, boolean AI, MessageBus bus, int exchangeInterval,
+                              long interpolationDelayMillis) {
         this.remoteServer = remoteServer;
         this.AI = AI;
+        this.bus = bus;
+        this.exchangeInterval = Math.max(1, exchangeInterval);
+        this.interpolationDelayMillis = interpolationDelayMillis;
     }
 
-    public synchronized void registration() throws RemoteException {
-        Messages.RegistrationACK result = remoteServer.registerPlayer();
-        this.playerId = result.playerId();
-        stateManager = new ClientGameStateManager(result.world(), this.playerId);
-        AIMovement.moveAI(this.playerId, stateManager);
-        this.running = true;
+    public void registration() throws RemoteException {
+        Messages.RegistrationACK result = this.server().registerPlayer();
+        synchronized (this) {
+            this.playerId = result.playerId();
+            stateManager = new ClientGameStateManager(result.world(), this.playerId, this.interpolationDelayMillis);
+            AIMovement.moveAI(this.playerId, stateManager);
+            if (this.bus != null) {
+                this.resync = true;
+                this.bus.subscribe(MessageBus.WORLD_UPDATES, update -> this.onWorldUpdate((Messages.WorldDelta) update));
+                this.bus.subscribe(MessageBus.GAME_OVER, gameOver -> this.onGameOver((Messages.GameOver) gameOver));
+            }
+            this.running = true;
+        }
     }
 
-    public synchronized void terminate() throws RemoteException {
-        this.remoteServer.unregisterPlayer(this.playerId);
-        this.running = false;
+    /**
+     * Carries on with the same player on a server restarted from a checkpoint; false when the server
+     * does not have it back, in which case nothing changes.
+     */
+    public boolean rejoin(GameServerInterface server) throws RemoteException {
+        Messages.RegistrationACK result = server.rejoin(this.getPlayerId());
+        if (result == null) {
+            return false;
+        }
+        synchronized (this) {
+            this.remoteServer = server;
+            this.generation++;
+            this.exchanging = false;
+            this.publishing = false;
+            this.failure = null;
+            this.replica = null;
+            this.replicaVersion = WorldReplicator.NO_VERSION;
+            this.resync = this.bus != null;
+            this.stateManager.updateState(result.world());
+        }
+        return true;
+    }
+
+    /**
+     * Whether the calls go to the given server, false for a server restarted under the same name.
+     */
+    public synchronized boolean isBoundTo(GameServerInterface server) {
+        return this.remoteServer.equals(server);
+    }
+
+    public void terminate() throws RemoteException {
+        String id;
+        synchronized (this) {
+            id = this.playerId;
+            this.running = false;
+        }
+        if (!id.isEmpty()) {
+            this.server().unregisterPlayer(id);
+        }
     }
 
     public synchronized boolean isRunning() {
         return running;
     }
 
+    /**
+     * One step of the local simulation, starting the remote calls that are due without waiting for them.
+     *
+     * @throws RemoteException when a call started by an earlier tick failed; the local step is skipped
+     */
     public synchronized void tick() throws RemoteException {
+        if (this.failure != null) {
+            RemoteException reported = this.failure;
+            this.failure = null;
+            throw reported;
+        }
         if(this.running){
-            if (!this.remoteServer.checkGameOver(this.playerId)) {
-                this.running = false;
-                return;
+            if (this.bus != null) {
+                this.pushTick();
+            } else {
+                this.pollingTick();
             }
-        
-            World world = this.remoteServer.getWorld();
-            this.stateManager.updateState(world);
-            if(this.AI) {
-                AIMovement.moveAI(playerId, this.stateManager);
+        }
+    }
+
+    private void pollingTick() {
+        if(this.AI) {
+            AIMovement.moveAI(playerId, this.stateManager);
+        }
+        this.stateManager.tick();
+        if (++this.ticksSinceExchange < this.exchangeInterval || this.exchanging) {
+            return;
+        }
+        this.ticksSinceExchange = 0;
+        this.exchanging = true;
+        Position directions = this.stateManager.getDirection();
+        Messages.ClientInput input = new Messages.ClientInput(this.playerId,
+                directions.x(), directions.y(), this.stateManager.getInputSequence(), this.replicaVersion);
+        GameServerInterface server = this.remoteServer;
+        long callGeneration = this.generation;
+        NETWORK.execute(() -> {
+            try {
+                this.onReply(server.exchange(input), callGeneration);
+            } catch (RemoteException e) {
+                this.onFailure(e, callGeneration);
             }
-            this.stateManager.tick();
-            Player currentPlayer = this.stateManager.getWorld().getPlayerById(this.playerId).get();
-            Position directions = this.stateManager.getDirection();
-            this.remoteServer.updatePlayer(currentPlayer.getId(), currentPlayer.getX(), currentPlayer.getY(), directions.x(), directions.y());
+        });
+    }
+
+    private synchronized void onReply(Messages.TickReply reply, long callGeneration) {
+        if (callGeneration != this.generation) {
+            return;
+        }
+        this.exchanging = false;
+        if (!reply.playing()) {
+            this.running = false;
+            return;
         }
+        this.applyUpdate(reply.update());
+        this.stateManager.reconcile(this.replica, reply.lastInput(), reply.lastInputTicks());
+    }
+
+    private synchronized void onFailure(RemoteException e, long callGeneration) {
+        if (callGeneration == this.generation) {
+            this.exchanging = false;
+            if (this.failure == null) {
+                this.failure = e;
+            }
+        }
+    }
+
+    private void pushTick() {
+        if (this.resync && !this.exchanging) {
+            this.exchanging = true;
+            GameServerInterface server = this.remoteServer;
+            long sinceVersion = this.replicaVersion;
+            long callGeneration = this.generation;
+            NETWORK.execute(() -> {
+                try {
+                    this.onResync(server.getWorldUpdate(sinceVersion), callGeneration);
+                } catch (RemoteException e) {
+                    this.onFailure(e, callGeneration);
+                }
+            });
+        }
+        if (this.replicaChanged) {
+            // Updates on the bus do not say which inputs they include, so the server world is taken as it is
+            this.stateManager.updateState(this.replica);
+            this.replicaChanged = false;
+        }
+        if(this.AI) {
+            AIMovement.moveAI(playerId, this.stateManager);
+        }
+        this.stateManager.tick();
+        if (this.publishing) {
+            // The next tick sends the latest direction instead
+            return;
+        }
+        this.publishing = true;
+        Position directions = this.stateManager.getDirection();
+        ServerEvents.PlayerUpdate update = new ServerEvents.PlayerUpdate(this.playerId, directions.x(), directions.y(),
+                this.stateManager.getInputSequence());
+        NETWORK.execute(() -> {
+            try {
+                this.bus.publish(MessageBus.PLAYER_EVENTS, update);
+            } finally {
+                this.onPublished();
+            }
+        });
+    }
+
+    private synchronized void onResync(Messages.WorldDelta delta, long callGeneration) {
+        if (callGeneration != this.generation) {
+            return;
+        }
+        this.exchanging = false;
+        if (delta.isSnapshot() || delta.baseVersion() == this.replicaVersion) {
+            this.applyUpdate(delta);
+            this.resync = false;
+        }
+    }
+
+    private synchronized void onPublished() {
+        this.publishing = false;
+    }
+
+    private synchronized void onWorldUpdate(Messages.WorldDelta delta) {
+        if (delta.isSnapshot() || delta.baseVersion() == this.replicaVersion) {
+            this.applyUpdate(delta);
+            this.resync = false;
+        } else if (delta.version() > this.replicaVersion) {
+            // A message was dropped, fetch the missing changes at the next tick
+            this.resync = true;
+        }
+    }
+
+    private synchronized void onGameOver(Messages.GameOver gameOver) {
+        if (gameOver.playerId().equals(this.playerId)) {
+            this.running = false;
+        }
+    }
+
+    private void applyUpdate(Messages.WorldDelta delta) {
+        this.replica = WorldReplicator.apply(this.replica, delta);
+        this.replicaVersion = delta.version();
+        this.replicaChanged = true;
+        this.updatesReceived++;
+    }
+
+    private synchronized GameServerInterface server() {
+        return this.remoteServer;
+    }
+
+    private synchronized String getPlayerId() {
+        return this.playerId;
+    }
+
+    /**
+     * Updates of the world merged from the server so far, through replies, resyncs or the bus.
+     */
+    public synchronized long getUpdatesReceived() {
+        return this.updatesReceived;
     }
 
     public synchronized ClientGameStateManager getGameState(){
@@ -1,98 +1,484 @@
 package it.unibo.agar.model;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Game server. Inputs are stored without locking in a slot per player, holding only the latest direction,
+ * and are read by the tick; readers get the world published at the end of the last tick.
+ * Only registrations and removals synchronize with the tick.
+ */
 public class DistributedGameStateManager implements GameServerInterface {
 
     private static final int MAX_GROWTH = 10000;
     private static final int WORLD_WIDTH = 1000;
     private static final int WORLD_HEIGHT = 1000;
     private static final int INITIAL_FOOD_COUNT = 150;
-    private static final double INITIAL_PLAYER_MASS = 120.0;
+    public static final double DEFAULT_INTEREST_RADIUS = 450.0;
+    private static final int KEYFRAME_INTERVAL = 30;
+    private static final int REJOIN_GRACE_TICKS = 1000;
 
     private final ServerGameStateManager localGameStateManager;
+    private final ForkJoinPool tickPool;
+    private final boolean ownsTickPool;
+    private final WorldReplicator replicator = new WorldReplicator();
+    private final ServerMetrics metrics = new ServerMetrics(this);
     private final AtomicInteger playerCounter = new AtomicInteger(0);
-    private final List<String> clients = new ArrayList<>();
-    private boolean running = false;
+    private final Map<String, AtomicReference<PlayerInputs.Input>> inputs = new ConcurrentHashMap<>();
+    private Map<String, WorldReplicator.AppliedInput> appliedInputs = Map.of();
+    private final double interestRadius;
+    private final long seed;
+    private final FoodSpawner.Settings foodSettings;
+    private final Random random;
+    private InputJournal journal = null;
+    private WorldCheckpointer checkpointer = null;
+    private BotManager bots = null;
+    private int botTarget = 0;
+    private int botInterval = 0;
+    private volatile int botCount = 0;
+    // Players of a restored match not taken back yet, removed when the grace period ends
+    private final Set<String> unclaimed = new HashSet<>();
+    private int graceTicks = 0;
+    private volatile World published;
+    private volatile boolean running = false;
+    private volatile MessageBus bus = null;
 
     public DistributedGameStateManager() {
-        List<Food> initialFoods = GameInitializer.initialFoods(INITIAL_FOOD_COUNT, WORLD_WIDTH, WORLD_HEIGHT);
+        this(DEFAULT_INTEREST_RADIUS);
+    }
+
+    public DistributedGameStateManager(final double interestRadius) {
+        this(interestRadius, 1, FoodSpawner.Settings.defaults(INITIAL_FOOD_COUNT));
+    }
+
+    /**
+     * @param tickThreads threads moving the players and resolving the eating of a tick, 1 to run it on the tick thread only
+     * @param food        how the food eaten is spawned again
+     */
+    public DistributedGameStateManager(final double interestRadius, final int tickThreads, final FoodSpawner.Settings food) {
+        this(interestRadius, tickThreads, food, new Random().nextLong());
+    }
+
+    /**
+     * A game drawn from the seed: the same seed, settings and inputs always give the same ticks.
+     */
+    public DistributedGameStateManager(final double interestRadius, final int tickThreads, final FoodSpawner.Settings food,
+                                       final long seed) {
+        this(interestRadius, tickThreads > 1 ? new ForkJoinPool(tickThreads) : null, true, food, seed);
+    }
+
+    /**
+     * A game ticked on a pool shared with other games, which is left running when this one ends.
+     *
+     * @param tickPool threads moving the players and resolving the eating of a tick, null to run it on the tick thread only
+     */
+    public DistributedGameStateManager(final double interestRadius, final ForkJoinPool tickPool, final FoodSpawner.Settings food) {
+        this(interestRadius, tickPool, false, food, new Random().nextLong());
+    }
+
+    private DistributedGameStateManager(final double interestRadius, final ForkJoinPool tickPool, final boolean ownsTickPool,
+                                        final FoodSpawner.Settings food, final long seed) {
+        this.interestRadius = interestRadius;
+        this.seed = seed;
+        this.foodSettings = food;
+        this.random = new Random(seed);
+        List<Food> initialFoods = GameInitializer.initialFoods(Math.min(INITIAL_FOOD_COUNT, food.maxFood()), WORLD_WIDTH, WORLD_HEIGHT,
+                Food.DEFAULT_MASS, this.random);
         World initialWorld = new World(WORLD_WIDTH, WORLD_HEIGHT, List.of(), initialFoods);
-        this.localGameStateManager = new ServerGameStateManager(initialWorld);
+        this.tickPool = tickPool;
+        this.ownsTickPool = ownsTickPool;
+        this.localGameStateManager = new ServerGameStateManager(initialWorld, this.tickPool,
+                new FoodSpawner(food, new Random(this.random.nextLong())));
+        this.replicator.publish(initialWorld);
+        this.published = initialWorld;
         this.running = true;
     }
 
     @Override
-    public synchronized Messages.RegistrationACK registerPlayer() throws RemoteException {
+    public Messages.RegistrationACK registerPlayer() throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            return this.addPlayer();
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.REGISTER_PLAYER, System.nanoTime() - start);
+        }
+    }
+
+    private synchronized Messages.RegistrationACK addPlayer() {
         String playerId = "p" + playerCounter.incrementAndGet();
         World currentWorld = localGameStateManager.getWorld();
-        Player newPlayer = new Player(playerId, (int) (Math.random() * currentWorld.getWidth()), (int) (Math.random() * currentWorld.getHeight()), INITIAL_PLAYER_MASS);
+        Player newPlayer = new Player(playerId, random.nextInt(currentWorld.getWidth()), random.nextInt(currentWorld.getHeight()), Player.INITIAL_MASS);
 
         List<Player> updatedPlayers = new ArrayList<>(currentWorld.getPlayers());
         updatedPlayers.add(newPlayer);
         localGameStateManager.updateWorld(new World(currentWorld.getWidth(), currentWorld.getHeight(), updatedPlayers, currentWorld.getFoods()));
 
-        clients.add(playerId);
-        return new Messages.RegistrationACK(playerId, localGameStateManager.getWorld());
+        inputs.put(playerId, PlayerInputs.newSlot());
+        if (journal != null) {
+            journal.registration(playerId);
+        }
+        published = localGameStateManager.getWorld();
+        return new Messages.RegistrationACK(playerId, published);
     }
 
     @Override
-    public synchronized void updatePlayer(String playerId, double posX, double posY, double dirX, double dirY) throws RemoteException {
-        localGameStateManager.movePlayer(playerId, posX, posY);
-        localGameStateManager.setPlayerDirection(playerId, dirX, dirY);
+    public Messages.RegistrationACK rejoin(String playerId) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            return this.reclaim(playerId);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.REJOIN, System.nanoTime() - start);
+        }
+    }
+
+    private synchronized Messages.RegistrationACK reclaim(String playerId) {
+        if (!this.unclaimed.remove(playerId) || this.published.getPlayerById(playerId).isEmpty()) {
+            return null;
+        }
+        this.inputs.put(playerId, PlayerInputs.newSlot());
+        return new Messages.RegistrationACK(playerId, this.published);
+    }
+
+    /**
+     * Goes on with the match saved in the checkpoint. Its players stay still until their clients rejoin,
+     * and the ones that do not come back within the grace period leave the game.
+     */
+    public synchronized void restore(WorldCheckpointer.Checkpoint checkpoint) {
+        if (this.playerCounter.get() > 0) {
+            throw new IllegalStateException("Players already joined, the checkpoint would overwrite their game");
+        }
+        this.localGameStateManager.updateWorld(checkpoint.world());
+        this.playerCounter.set(checkpoint.playerCounter());
+        checkpoint.world().getPlayers().stream()
+                .filter(player -> this.bots == null || !BotManager.isBot(player.getId()))
+                .forEach(player -> this.unclaimed.add(player.getId()));
+        if (this.bots != null) {
+            this.bots.adopt(checkpoint.world());
+        }
+        this.graceTicks = REJOIN_GRACE_TICKS;
+        this.published = checkpoint.world();
+        this.replicator.publish(this.published);
+    }
+
+    /**
+     * Saves the world to the file every given number of ticks, counting from the tick of the restored checkpoint, if any.
+     */
+    public synchronized void checkpointTo(Path file, int interval, long startTick) {
+        this.checkpointer = new WorldCheckpointer(file, interval, startTick);
+    }
+
+    /**
+     * Stops checkpointing, keeping the last checkpoint so that a restarted server can go on from there.
+     */
+    public synchronized void stopCheckpointing() {
+        if (this.checkpointer != null) {
+            this.checkpointer.close(false);
+            this.checkpointer = null;
+        }
+    }
+
+    @Override
+    public Messages.TickReply exchange(Messages.ClientInput input) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            if (!this.isPlaying(input.playerId())) {
+                return new Messages.TickReply(false, null, 0, 0);
+            }
+            this.applyInput(input.playerId(), input.dirX(), input.dirY(), input.inputSequence());
+            Messages.WorldDelta update = this.viewUpdate(input.playerId(), input.lastVersion());
+            WorldReplicator.AppliedInput applied = this.replicator.appliedInput(input.playerId(), update.version());
+            return new Messages.TickReply(true, update, applied.sequence(), applied.ticks());
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.EXCHANGE, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The position sent by older clients is ignored, the server moves the player along the direction.
+     */
+    @Override
+    @Deprecated
+    public void updatePlayer(String playerId, double posX, double posY, double dirX, double dirY) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            this.applyInput(playerId, dirX, dirY, 0);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.UPDATE_PLAYER, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Inputs older than the last one received are dropped; unnumbered inputs (sequence 0) are always applied.
+     */
+    private void applyInput(String playerId, double dirX, double dirY, long sequence) {
+        PlayerInputs.apply(this.inputs.get(playerId), dirX, dirY, sequence);
+    }
+
+    /**
+     * Input read from a journal, applied as if it came from the client.
+     */
+    void applyJournaledInput(String playerId, double dirX, double dirY) {
+        this.applyInput(playerId, dirX, dirY, 0);
+    }
+
+    /**
+     * Fills the game with bots up to the given number of players, each bot deciding every given number of ticks.
+     * Bots make room for the players that join and come back when they leave. They never win: the match
+     * only ends when a player of a client reaches the maximum size, a bot that does is replaced.
+     */
+    public synchronized void hostBots(int targetPlayers, int decisionInterval) {
+        if (this.journal != null) {
+            throw new IllegalStateException("The journal is already recording the game without bots");
+        }
+        this.botTarget = targetPlayers;
+        this.botInterval = decisionInterval;
+        this.bots = new BotManager(this.localGameStateManager, targetPlayers, decisionInterval, MAX_GROWTH, new Random(this.random.nextLong()));
+    }
+
+    /**
+     * Journals the inputs of the game in the file, from now on; to be replayed, the game must not have started yet.
+     */
+    public synchronized void record(Path file) throws IOException {
+        if (this.playerCounter.get() > 0) {
+            throw new IllegalStateException("Players already joined, the journal could not be replayed");
+        }
+        this.journal = InputJournal.create(file, this.seed, this.foodSettings, this.botTarget, this.botInterval);
+    }
+
+    public synchronized void stopRecording() {
+        if (this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Streams every tick to subscribers of the bus and accepts player inputs from it, besides the RMI calls.
+     */
+    public synchronized void attach(MessageBus bus) {
+        this.bus = bus;
+        bus.subscribe(MessageBus.PLAYER_EVENTS, this::onPlayerEvent);
+    }
+
+    private void onPlayerEvent(Object event) {
+        if (event instanceof ServerEvents.PlayerUpdate update && this.isPlaying(update.playerId())) {
+            this.applyInput(update.playerId(), update.dirX(), update.dirY(), update.inputSequence());
+        } else if (event instanceof ServerEvents.Unregistration unregistration) {
+            this.removeClient(unregistration.playerId());
+        }
     }
 
     @Override
-    public synchronized void unregisterPlayer(String playerId) throws RemoteException {
+    public void unregisterPlayer(String playerId) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            this.removeClient(playerId);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.UNREGISTER_PLAYER, System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void removeClient(String playerId) {
         this.localGameStateManager.removePlayer(playerId);
-        this.clients.remove(playerId);
+        this.inputs.remove(playerId);
+        this.replicator.forget(playerId);
+        if (this.journal != null) {
+            this.journal.unregistration(playerId);
+        }
+        this.published = this.localGameStateManager.getWorld();
+    }
+
+    @Override
+    @Deprecated
+    public World getWorld() throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            return this.published;
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.GET_WORLD, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Messages.WorldDelta getWorldUpdate(long sinceVersion) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            return this.replicator.deltaSince(sinceVersion);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.GET_WORLD_UPDATE, System.nanoTime() - start);
+        }
     }
 
     @Override
-    public synchronized World getWorld() throws RemoteException {
-        return this.localGameStateManager.getWorld();
+    public Messages.WorldDelta getWorldUpdate(String playerId, long sinceVersion) throws RemoteException {
+        long start = this.metrics.start();
+        try {
+            return this.viewUpdate(playerId, sinceVersion);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.GET_WORLD_UPDATE, System.nanoTime() - start);
+        }
+    }
+
+    private Messages.WorldDelta viewUpdate(String playerId, long sinceVersion) {
+        return this.replicator.deltaFor(playerId, sinceVersion, this.interestAreaOf(playerId));
+    }
+
+    private WorldReplicator.InterestArea interestAreaOf(String playerId) {
+        AtomicReference<PlayerInputs.Input> slot = this.inputs.get(playerId);
+        return this.published.getPlayerById(playerId)
+                .map(player -> PlayerInputs.interestArea(player, PlayerInputs.of(slot), this.interestRadius))
+                .orElse(WorldReplicator.InterestArea.EMPTY);
     }
 
     @Override
+    @Deprecated
     public boolean checkGameOver(String playerId) throws RemoteException {
-        return clients.contains(playerId);
+        long start = this.metrics.start();
+        try {
+            return this.isPlaying(playerId);
+        } finally {
+            this.metrics.recordCall(ServerMetrics.Call.CHECK_GAME_OVER, System.nanoTime() - start);
+        }
+    }
+
+    private boolean isPlaying(String playerId) {
+        return inputs.containsKey(playerId);
     }
 
     private void notifyGameOver(List<Player> playersToRemove){
         playersToRemove.forEach(player -> {
-                clients.remove(player.getId());
+                inputs.remove(player.getId());
+                replicator.forget(player.getId());
+                publishGameOver(player.getId());
         });
     }
 
+    private void publishGameOver(String playerId) {
+        if (this.bus != null) {
+            this.bus.publish(MessageBus.GAME_OVER, new Messages.GameOver(playerId));
+        }
+    }
+
+    private void publishWorldUpdate(long version) {
+        if (this.bus != null) {
+            long base = version % KEYFRAME_INTERVAL == 0 ? WorldReplicator.NO_VERSION : version - 1;
+            this.bus.publish(MessageBus.WORLD_UPDATES, this.replicator.deltaSince(base));
+        }
+    }
+
+    // Only players of clients win; a bot growing that big is replaced by the next tick
     private boolean gameEnded(){
-        return this.localGameStateManager.getWorld().getPlayers().stream().anyMatch( x -> x.getMass() >= MAX_GROWTH);
+        return this.published.getPlayers().stream()
+                .anyMatch(x -> x.getMass() >= MAX_GROWTH && (this.bots == null || !this.bots.manages(x.getId())));
     }
 
     private List<Player> getPlayers(){
-        return this.localGameStateManager.getWorld().getPlayers();
+        return this.published.getPlayers();
     }
 
     public synchronized void terminate(){
-        clients.clear();
+        inputs.keySet().forEach(this::publishGameOver);
+        inputs.clear();
         this.running = false;
+        this.stopRecording();
+        if (this.checkpointer != null) {
+            // The match is over, there is nothing to restore
+            this.checkpointer.close(true);
+            this.checkpointer = null;
+        }
+        if (this.tickPool != null && this.ownsTickPool) {
+            this.tickPool.shutdown();
+        }
     }
 
     public synchronized void tick() {
         if (this.running) {
+            long start = this.metrics.start();
+            if (this.bots != null) {
+                this.bots.tick(this.inputs.size());
+                this.botCount = this.bots.getBots();
+            }
+            if (this.graceTicks > 0 && --this.graceTicks == 0) {
+                // Before the tick, so that no published world, journal or checkpoint still has them
+                this.unclaimed.forEach(this.localGameStateManager::removePlayer);
+                this.unclaimed.clear();
+            }
+            this.appliedInputs = this.drainInputs();
             this.localGameStateManager.tick();
+            this.published = this.localGameStateManager.getWorld();
+            if (this.journal != null) {
+                this.journal.tick(this.published);
+            }
+            if (this.checkpointer != null) {
+                this.checkpointer.tick(this.published, this.playerCounter.get());
+            }
+            this.publishWorldUpdate(this.replicator.publish(this.published, this.appliedInputs));
+            List<Player> eatenPlayers = this.localGameStateManager.getPlayersToRemove();
             if (this.gameEnded()) {
                 this.notifyGameOver(this.getPlayers());
                 this.terminate();
             } else {
-                this.notifyGameOver(this.localGameStateManager.getPlayersToRemove());
+                this.notifyGameOver(eatenPlayers);
             }
+            this.metrics.recordTick(System.nanoTime() - start, this.localGameStateManager.getLastEatenFoods(), eatenPlayers.size());
         }
     }
 
+    /**
+     * Hands the latest input of every player to the engine, returning the inputs applied.
+     */
+    private Map<String, WorldReplicator.AppliedInput> drainInputs() {
+        Map<String, WorldReplicator.AppliedInput> applied = new HashMap<>(this.inputs.size() * 2);
+        this.inputs.forEach((playerId, slot) -> {
+            PlayerInputs.Input input = slot.get();
+            this.localGameStateManager.setPlayerDirection(playerId, input.dirX(), input.dirY());
+            if (this.journal != null) {
+                this.journal.input(playerId, input.dirX(), input.dirY());
+            }
+            applied.put(playerId, this.appliedInputs.getOrDefault(playerId, WorldReplicator.AppliedInput.NONE).then(input.sequence()));
+        });
+        return applied;
+    }
+
+    public int getBots() {
+        return this.botCount;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public ServerMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public int getRegisteredPlayers() {
+        return this.inputs.size();
+    }
+
+    /**
+     * Players registered since the server started, including the ones that already left.
+     */
+    public int getRegistrationCount() {
+        return this.playerCounter.get();
+    }
+
+    public World getPublishedWorld() {
+        return this.published;
+    }
+
     public ServerGameStateManager getLocalGameStateManager() {
         return localGameStateManager;
     }
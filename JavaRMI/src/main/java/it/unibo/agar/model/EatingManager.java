@@ -1,8 +1,33 @@
 package it.unibo.agar.model;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class EatingManager {
 
-    private static final double MASS_MARGIN = 1.1; // 10% bigger to eat
+    static final double MASS_MARGIN = 1.1; // 10% bigger to eat
+    private static final int PLAYERS_PER_TASK = 32;
+
+    /**
+     * Outcome of one collision pass: every player grown by what it ate, plus the foods and players to remove.
+     */
+    public record EatingResult(List<Player> players, List<Food> eatenFoods, List<Player> eatenPlayers) {}
+
+    /**
+     * Told of every meal of a pass, in the order the eaters are resolved.
+     */
+    public interface Meals {
+        void food(Player eater, Food food);
+
+        /**
+         * @param grows whether the eater grows by the other, judged on its size after the foods of the tick
+         * @param eaten whether the other is removed, judged on the sizes at the start of the tick
+         */
+        void player(Player eater, Player other, boolean grows, boolean eaten);
+    }
 
     private static boolean collides(final Entity e1, final Entity e2) {
         return e1.distanceTo(e2) < (e1.getRadius() + e2.getRadius());
@@ -15,4 +40,142 @@ public class EatingManager {
     public static boolean canEatPlayer(final Player player, final Player other) {
         return collides(player, other) && player.getMass() > other.getMass() * MASS_MARGIN;
     }
+
+    /**
+     * Resolves all the eating of a tick in a single pass over the spatial grids of the world.
+     * A player grows by the foods it touches and then, with its grown size, by the players it can eat;
+     * removals are decided on the sizes at the start of the tick.
+     */
+    public static EatingResult resolve(final World world) {
+        return resolve(world, null, null);
+    }
+
+    /**
+     * Same outcome as the sequential pass, with the players split by bands of grid cells among the tasks
+     * of the pool: each player only reads the world at the start of the tick and writes its own results.
+     */
+    public static EatingResult resolve(final World world, final ForkJoinPool pool) {
+        return resolve(world, pool, null);
+    }
+
+    /**
+     * The sequential pass, also telling the listener of each meal, for callers that decide the outcome themselves.
+     */
+    public static EatingResult resolve(final World world, final Meals meals) {
+        return resolve(world, null, meals);
+    }
+
+    private static EatingResult resolve(final World world, final ForkJoinPool pool, final Meals meals) {
+        final Pass pass = new Pass(world, meals);
+        final int playerCount = world.getPlayers().size();
+        if (pool == null || pool.getParallelism() <= 1 || playerCount <= PLAYERS_PER_TASK) {
+            final SpatialGrid.Candidates candidates = new SpatialGrid.Candidates();
+            for (int i = 0; i < playerCount; i++) {
+                pass.resolvePlayer(i, candidates);
+            }
+        } else {
+            pool.invoke(new CellBand(pass, 0, pass.playerGrid.getCellCount()));
+        }
+        return new EatingResult(Arrays.asList(pass.grownPlayers),
+                marked(pass.foods, pass.foodEaten), marked(pass.players, pass.playerEaten));
+    }
+
+    private static <E> List<E> marked(final List<E> entities, final boolean[] marks) {
+        final List<E> result = new ArrayList<>();
+        for (int i = 0; i < marks.length; i++) {
+            if (marks[i]) {
+                result.add(entities.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static final class Pass {
+        private final List<Player> players;
+        private final List<Food> foods;
+        private final SpatialGrid<Player> playerGrid;
+        private final SpatialGrid<Food> foodGrid;
+        private final boolean[] foodEaten;
+        private final boolean[] playerEaten;
+        private final Player[] grownPlayers;
+        private final Meals meals;
+
+        private Pass(final World world, final Meals meals) {
+            this.players = world.getPlayers();
+            this.foods = world.getFoods();
+            this.playerGrid = world.getPlayerGrid();
+            this.foodGrid = world.getFoodGrid();
+            this.foodEaten = new boolean[foods.size()];
+            this.playerEaten = new boolean[players.size()];
+            this.grownPlayers = new Player[players.size()];
+            this.meals = meals;
+        }
+
+        // Marks are only ever set to true, so tasks sharing them agree on the outcome
+        private void resolvePlayer(final int playerIndex, final SpatialGrid.Candidates candidates) {
+            final Player player = players.get(playerIndex);
+            candidates.clear();
+            foodGrid.forEachCandidate(player.getX(), player.getY(), player.getRadius() + foodGrid.getMaxRadius(), candidates);
+            candidates.sort();
+            Player grown = player;
+            for (int k = 0; k < candidates.size; k++) {
+                final int index = candidates.items[k];
+                final Food food = foods.get(index);
+                if (canEatFood(player, food)) {
+                    foodEaten[index] = true;
+                    grown = grown.grow(food);
+                    if (meals != null) {
+                        meals.food(player, food);
+                    }
+                }
+            }
+
+            candidates.clear();
+            playerGrid.forEachCandidate(player.getX(), player.getY(), grown.getRadius() + playerGrid.getMaxRadius(), candidates);
+            candidates.sort();
+            final Player afterFood = grown;
+            for (int k = 0; k < candidates.size; k++) {
+                final int index = candidates.items[k];
+                final Player other = players.get(index);
+                if (other.getId().equals(player.getId())) {
+                    continue;
+                }
+                final boolean grows = canEatPlayer(afterFood, other);
+                final boolean eaten = canEatPlayer(player, other);
+                if (grows) {
+                    grown = grown.grow(other);
+                }
+                if (eaten) {
+                    playerEaten[index] = true;
+                }
+                if (meals != null && (grows || eaten)) {
+                    meals.player(player, other, grows, eaten);
+                }
+            }
+            grownPlayers[playerIndex] = grown;
+        }
+    }
+
+    private static final class CellBand extends RecursiveAction {
+        private final Pass pass;
+        private final int fromCell;
+        private final int toCell;
+
+        private CellBand(final Pass pass, final int fromCell, final int toCell) {
+            this.pass = pass;
+            this.fromCell = fromCell;
+            this.toCell = toCell;
+        }
+
+        @Override
+        protected void compute() {
+            if (toCell - fromCell <= 1 || pass.playerGrid.countInCells(fromCell, toCell) <= PLAYERS_PER_TASK) {
+                final SpatialGrid.Candidates candidates = new SpatialGrid.Candidates();
+                pass.playerGrid.forEachInCells(fromCell, toCell, i -> pass.resolvePlayer(i, candidates));
+            } else {
+                final int middle = (fromCell + toCell) >>> 1;
+                invokeAll(new CellBand(pass, fromCell, middle), new CellBand(pass, middle, toCell));
+            }
+        }
+    }
 }
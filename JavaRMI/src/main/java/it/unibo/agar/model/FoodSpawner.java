@@ -0,0 +1,148 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Refills the food eaten during the game. The world is split into square regions, each with an equal share
+ * of the food; every tick a limited number of foods is spawned in the regions furthest below their share.
+ * Food ids come from a fixed pool, so an eaten food leaves its id to a later spawn.
+ */
+public class FoodSpawner {
+
+    public enum Distribution { UNIFORM, CLUSTERED }
+
+    /**
+     * @param maxFood     food kept in the world once fully refilled
+     * @param regionsPerSide regions along each side of the world
+     * @param spawnsPerTick  foods spawned per tick at most, fractions add up over the ticks
+     * @param distribution   where a food lands in its region: anywhere, or close to the centre
+     */
+    public record Settings(int maxFood, int regionsPerSide, double spawnsPerTick, Distribution distribution) {
+        public static final double DEFAULT_SPAWNS_PER_TICK = 0.5;
+        private static final int DEFAULT_REGIONS_PER_SIDE = 4;
+
+        public static Settings defaults(final int maxFood) {
+            return new Settings(maxFood, DEFAULT_REGIONS_PER_SIDE, DEFAULT_SPAWNS_PER_TICK, Distribution.UNIFORM);
+        }
+
+        public Settings withRate(final double rate, final Distribution newDistribution) {
+            return new Settings(maxFood, regionsPerSide, rate, newDistribution);
+        }
+    }
+
+    private final Settings settings;
+    private final Random random;
+    private final String[] ids;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final boolean[] alive;
+    private final int[] regionCounts;
+    private final int[] regionTargets;
+    private double budget = 0;
+
+    public FoodSpawner(final Settings settings, final Random random) {
+        this.settings = settings;
+        this.random = random;
+        this.ids = new String[settings.maxFood()];
+        this.alive = new boolean[settings.maxFood()];
+        // Same ids as the initial food of GameInitializer
+        for (int slot = 0; slot < ids.length; slot++) {
+            ids[slot] = "f" + (slot + 1);
+            slots.put(ids[slot], slot);
+        }
+        final int regions = settings.regionsPerSide() * settings.regionsPerSide();
+        this.regionCounts = new int[regions];
+        this.regionTargets = new int[regions];
+        for (int region = 0; region < regions; region++) {
+            regionTargets[region] = settings.maxFood() / regions + (region < settings.maxFood() % regions ? 1 : 0);
+        }
+    }
+
+    /**
+     * Returns the world with the food spawned in this tick, or the same world when nothing was spawned.
+     */
+    public World refill(final World world) {
+        budget = Math.min(budget + settings.spawnsPerTick(), Math.max(1, settings.spawnsPerTick()));
+        if (budget < 1 || world.getFoods().size() >= settings.maxFood()) {
+            return world;
+        }
+        Arrays.fill(alive, false);
+        Arrays.fill(regionCounts, 0);
+        for (final Food food : world.getFoods()) {
+            final Integer slot = slots.get(food.getId());
+            if (slot != null) {
+                alive[slot] = true;
+            }
+            regionCounts[regionOf(food.getX(), food.getY(), world)]++;
+        }
+
+        final List<Food> spawned = new ArrayList<>();
+        int slot = 0;
+        while (budget >= 1 && world.getFoods().size() + spawned.size() < settings.maxFood()) {
+            while (slot < alive.length && alive[slot]) {
+                slot++;
+            }
+            final int region = neediestRegion();
+            if (slot == alive.length || region < 0) {
+                break;
+            }
+            spawned.add(spawn(slot, region, world));
+            alive[slot] = true;
+            regionCounts[region]++;
+            budget--;
+        }
+        if (spawned.isEmpty()) {
+            return world;
+        }
+        final List<Food> foods = new ArrayList<>(world.getFoods().size() + spawned.size());
+        foods.addAll(world.getFoods());
+        foods.addAll(spawned);
+        return new World(world.getWidth(), world.getHeight(), world.getPlayers(), foods);
+    }
+
+    private int neediestRegion() {
+        int neediest = -1;
+        int largestDeficit = 0;
+        for (int region = 0; region < regionCounts.length; region++) {
+            final int deficit = regionTargets[region] - regionCounts[region];
+            if (deficit > largestDeficit) {
+                largestDeficit = deficit;
+                neediest = region;
+            }
+        }
+        return neediest;
+    }
+
+    private Food spawn(final int slot, final int region, final World world) {
+        final int side = settings.regionsPerSide();
+        final double regionWidth = world.getWidth() / (double) side;
+        final double regionHeight = world.getHeight() / (double) side;
+        final double left = (region % side) * regionWidth;
+        final double top = (region / side) * regionHeight;
+        final double x;
+        final double y;
+        if (settings.distribution() == Distribution.CLUSTERED) {
+            x = left + clamp(0.5 + random.nextGaussian() / 6, 0, 1) * regionWidth;
+            y = top + clamp(0.5 + random.nextGaussian() / 6, 0, 1) * regionHeight;
+        } else {
+            x = left + random.nextDouble() * regionWidth;
+            y = top + random.nextDouble() * regionHeight;
+        }
+        return new Food(ids[slot], x, y, Food.DEFAULT_MASS);
+    }
+
+    private int regionOf(final double x, final double y, final World world) {
+        final int side = settings.regionsPerSide();
+        final int column = (int) clamp(x * side / world.getWidth(), 0, side - 1);
+        final int row = (int) clamp(y * side / world.getHeight(), 0, side - 1);
+        return row * side + column;
+    }
+
+    private static double clamp(final double value, final double min, final double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
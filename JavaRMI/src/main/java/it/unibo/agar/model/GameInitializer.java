@@ -12,16 +12,29 @@ public class GameInitializer {
     private GameInitializer() { }
 
     public static List<Player> initialPlayers(final int numPlayers,final int width, final int height, final double initialMass) {
+        return initialPlayers(numPlayers, width, height, initialMass, random);
+    }
+
+    /**
+     * Players placed with the given generator, so that a seeded one always gives the same players.
+     */
+    public static List<Player> initialPlayers(final int numPlayers, final int width, final int height, final double initialMass,
+                                              final Random random) {
         return IntStream.rangeClosed(1, numPlayers)
             .mapToObj(i -> new Player("p" + i, random.nextInt(width), random.nextInt(height), initialMass))
             .toList();
     }
 
     public static List<Player> initialPlayers(final int numPlayers, final int width, final int height) {
-        return initialPlayers(numPlayers, width, height, 120.0);
+        return initialPlayers(numPlayers, width, height, Player.INITIAL_MASS);
     }
 
     public static List<Food> initialFoods(final int numFoods, final int width, final int height, final double initialMass) {
+        return initialFoods(numFoods, width, height, initialMass, random);
+    }
+
+    public static List<Food> initialFoods(final int numFoods, final int width, final int height, final double initialMass,
+                                          final Random random) {
         return IntStream.rangeClosed(1, numFoods)
                 .mapToObj(i -> new Food("f" + i, random.nextInt(width), random.nextInt(height), initialMass))
                 .toList();
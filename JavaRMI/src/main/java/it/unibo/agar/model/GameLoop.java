@@ -0,0 +1,157 @@
+package it.unibo.agar.model;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed timestep loop: each frame runs as many simulation steps as the elapsed time asks for, up to a cap,
+ * then renders once. Steps that would exceed the cap are dropped, so an overloaded server slows the game
+ * down instead of bunching up ticks.
+ */
+public class GameLoop {
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Counters since the loop started; a step is an overrun when it takes longer than the timestep.
+     */
+    public record Statistics(long steps, long frames, long overruns, long droppedSteps,
+                             double averageStepMillis, double maxStepMillis) {}
+
+    private final long stepNanos;
+    private final int maxStepsPerFrame;
+    private final Runnable step;
+    private final Runnable render;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private volatile boolean running = false;
+    private long lastFrame;
+    private long accumulator;
+    private long lastReport;
+    private long reportedOverruns;
+    private long reportedDrops;
+
+    private long steps;
+    private long frames;
+    private long overruns;
+    private long droppedSteps;
+    private long totalStepNanos;
+    private long maxStepNanos;
+
+    public GameLoop(final long stepMillis, final int maxStepsPerFrame, final Runnable step, final Runnable render) {
+        this(stepMillis, maxStepsPerFrame, step, render, Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "game-loop")), true);
+    }
+
+    /**
+     * Runs the frames on a shared executor, which the loop does not shut down.
+     */
+    public GameLoop(final long stepMillis, final int maxStepsPerFrame, final Runnable step, final Runnable render,
+                    final ScheduledExecutorService executor) {
+        this(stepMillis, maxStepsPerFrame, step, render, executor, false);
+    }
+
+    private GameLoop(final long stepMillis, final int maxStepsPerFrame, final Runnable step, final Runnable render,
+                     final ScheduledExecutorService executor, final boolean ownsExecutor) {
+        this.stepNanos = TimeUnit.MILLISECONDS.toNanos(stepMillis);
+        this.maxStepsPerFrame = maxStepsPerFrame;
+        this.step = step;
+        this.render = render;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public void start() {
+        running = true;
+        lastFrame = System.nanoTime();
+        lastReport = lastFrame;
+        accumulator = stepNanos;
+        executor.execute(this::frame);
+    }
+
+    public void stop() {
+        running = false;
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(steps, frames, overruns, droppedSteps,
+                steps == 0 ? 0 : totalStepNanos / (double) steps / 1e6, maxStepNanos / 1e6);
+    }
+
+    private void frame() {
+        try {
+            runFrame();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            stop();
+        }
+    }
+
+    private void runFrame() {
+        if (!running) {
+            return;
+        }
+        final long now = System.nanoTime();
+        accumulator += now - lastFrame;
+        lastFrame = now;
+
+        int stepsThisFrame = 0;
+        while (running && accumulator >= stepNanos && stepsThisFrame < maxStepsPerFrame) {
+            final long start = System.nanoTime();
+            step.run();
+            record(System.nanoTime() - start);
+            accumulator -= stepNanos;
+            stepsThisFrame++;
+        }
+        if (accumulator >= stepNanos) {
+            synchronized (this) {
+                droppedSteps += accumulator / stepNanos;
+            }
+            accumulator %= stepNanos;
+        }
+        if (stepsThisFrame > 0) {
+            render.run();
+            synchronized (this) {
+                frames++;
+            }
+        }
+        report(now);
+
+        if (running) {
+            final long delay = stepNanos - accumulator - (System.nanoTime() - lastFrame);
+            executor.schedule(this::frame, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void record(final long duration) {
+        steps++;
+        totalStepNanos += duration;
+        maxStepNanos = Math.max(maxStepNanos, duration);
+        if (duration > stepNanos) {
+            overruns++;
+        }
+    }
+
+    private void report(final long now) {
+        if (now - lastReport < REPORT_INTERVAL_NANOS) {
+            return;
+        }
+        lastReport = now;
+        final Statistics statistics = getStatistics();
+        if (statistics.overruns() > reportedOverruns || statistics.droppedSteps() > reportedDrops) {
+            System.out.printf("Game loop is falling behind: %d overruns and %d dropped steps in the last %d s (%s)%n",
+                    statistics.overruns() - reportedOverruns, statistics.droppedSteps() - reportedDrops,
+                    TimeUnit.NANOSECONDS.toSeconds(REPORT_INTERVAL_NANOS), statistics);
+            reportedOverruns = statistics.overruns();
+            reportedDrops = statistics.droppedSteps();
+        }
+    }
+}
@@ -7,11 +7,39 @@ public interface GameServerInterface extends Remote {
 
     Messages.RegistrationACK registerPlayer() throws RemoteException;
 
+    /**
+     * Sends the input of a client tick and answers, in the same round-trip, whether the player is still
+     * in game and the changes of its area of interest since the version the client holds.
+     */
+    Messages.TickReply exchange(Messages.ClientInput input) throws RemoteException;
+
+    /**
+     * @deprecated kept for clients of the previous release, use {@link #exchange(Messages.ClientInput)}.
+     */
+    @Deprecated
     void updatePlayer(String playerId, double posX, double posY, double dirX, double dirY) throws RemoteException;
 
+    /**
+     * Takes back, after the server restarted from a checkpoint, a player of the restored match.
+     * Returns null when the player is not in it or was already taken back.
+     */
+    Messages.RegistrationACK rejoin(String playerId) throws RemoteException;
+
     void unregisterPlayer(String playerId) throws RemoteException;
 
+    /**
+     * @deprecated kept for clients of the previous release, use {@link #exchange(Messages.ClientInput)}.
+     */
+    @Deprecated
     World getWorld() throws RemoteException;
 
+    Messages.WorldDelta getWorldUpdate(long sinceVersion) throws RemoteException;
+
+    Messages.WorldDelta getWorldUpdate(String playerId, long sinceVersion) throws RemoteException;
+
+    /**
+     * @deprecated kept for clients of the previous release, use {@link #exchange(Messages.ClientInput)}.
+     */
+    @Deprecated
     boolean checkGameOver(String playerId) throws RemoteException;
 }
\ No newline at end of file
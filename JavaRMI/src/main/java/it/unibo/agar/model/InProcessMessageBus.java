@@ -0,0 +1,88 @@
+package it.unibo.agar.model;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the AMQP broker inside a single JVM: same topic matching, messages copied through the
+ * binary codec and delivered asynchronously, one thread per subscription. Like the bounded queues of the broker,
+ * a subscription keeps at most {@link #MAX_QUEUED} messages and drops the oldest beyond them.
+ */
+public class InProcessMessageBus implements MessageBus {
+
+    private record Subscription(Pattern binding, Consumer<Object> listener, ExecutorService executor) {}
+
+    // Every subscription of the broker, shared by its connections
+    private final List<Subscription> subscriptions;
+    private final List<Subscription> own = new CopyOnWriteArrayList<>();
+
+    public InProcessMessageBus() {
+        this(new CopyOnWriteArrayList<>());
+    }
+
+    private InProcessMessageBus(final List<Subscription> subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
+    /**
+     * Another connection to the same broker, as a client opening its own would have; closing it drops only
+     * its subscriptions.
+     */
+    public InProcessMessageBus connect() {
+        return new InProcessMessageBus(subscriptions);
+    }
+
+    @Override
+    public void publish(final String routingKey, final Object message) {
+        final byte[] body = BinaryCodec.encodeForWire(message);
+        for (Subscription subscription : subscriptions) {
+            if (subscription.binding().matcher(routingKey).matches()) {
+                // Dropped if its connection was closed meanwhile
+                subscription.executor().execute(() -> subscription.listener().accept(BinaryCodec.decodeFromWire(body)));
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(final String bindingKey, final Consumer<Object> listener) {
+        final ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+                    Thread thread = new Thread(r, "bus-" + bindingKey);
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardOldestPolicy());
+        final Subscription subscription = new Subscription(toPattern(bindingKey), listener, executor);
+        own.add(subscription);
+        subscriptions.add(subscription);
+    }
+
+    @Override
+    public void close() {
+        subscriptions.removeAll(own);
+        own.forEach(s -> s.executor().shutdownNow());
+        own.clear();
+    }
+
+    private static Pattern toPattern(final String bindingKey) {
+        final String[] words = bindingKey.split("\\.");
+        final StringBuilder regex = new StringBuilder();
+        boolean separator = false;
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals("#")) {
+                regex.append(i == 0 ? "(?:[^.]+(?:\\.|$))*" : "(?:\\.[^.]+)*");
+                separator = i > 0;
+            } else {
+                regex.append(separator ? "\\." : "");
+                regex.append(words[i].equals("*") ? "[^.]+" : Pattern.quote(words[i]));
+                separator = true;
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,246 @@
+package it.unibo.agar.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Append-only record of everything that steers a seeded game: registrations and removals in the order the
+ * server applied them, and for every tick the player directions that changed since the previous one.
+ * Together with the seed, the food settings and the bots in the header, that is enough for {@link JournalReplayer}
+ * to rebuild any tick. A checksum of the world every {@link #CHECKSUM_INTERVAL} ticks lets the replay
+ * check that it did not diverge.
+ * <p>
+ * Records are gathered in a direct buffer which, once full, goes to a writer thread while the tick fills a
+ * second one; the tick only waits on the disk when the writer is still busy with the previous buffer.
+ * A write error stops the journal without stopping the game.
+ */
+public class InputJournal implements Closeable {
+
+    static final int MAGIC = 0x41474A32; // "AGJ2"
+    static final byte REGISTRATION = 1;
+    static final byte UNREGISTRATION = 2;
+    static final byte TICK = 3;
+    static final byte CHECKSUM = 4;
+    public static final int CHECKSUM_INTERVAL = 100;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    // Owned by the writer until the write in progress is done
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private Future<?> writing = null;
+    private volatile IOException writeError = null;
+    private Map<String, Position> lastInputs = new HashMap<>();
+    private Map<String, Position> tickInputs = new HashMap<>();
+    private long ticks = 0;
+    private boolean open = true;
+
+    private InputJournal(final Path file, final FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Starts a new journal in the file, replacing its content.
+     */
+    public static InputJournal create(final Path file, final long seed, final FoodSpawner.Settings food,
+                                      final int botTarget, final int botInterval) throws IOException {
+        final InputJournal journal = new InputJournal(file, FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+        journal.buffer.putInt(MAGIC).putLong(seed)
+                .putInt(food.maxFood()).putInt(food.regionsPerSide()).putDouble(food.spawnsPerTick())
+                .put((byte) food.distribution().ordinal())
+                .putInt(botTarget).putInt(botInterval);
+        return journal;
+    }
+
+    public synchronized void registration(final String playerId) {
+        if (ensure(1 + idSize(playerId))) {
+            buffer.put(REGISTRATION);
+            putId(playerId);
+        }
+    }
+
+    public synchronized void unregistration(final String playerId) {
+        if (ensure(1 + idSize(playerId))) {
+            buffer.put(UNREGISTRATION);
+            putId(playerId);
+        }
+    }
+
+    /**
+     * Direction of a player read by the tick about to be recorded.
+     */
+    public synchronized void input(final String playerId, final double dirX, final double dirY) {
+        tickInputs.put(playerId, new Position(dirX, dirY));
+    }
+
+    /**
+     * Ends the record of a tick with the inputs that changed, and adds the checksum of the world it produced
+     * when one is due.
+     */
+    public synchronized void tick(final World world) {
+        final List<Map.Entry<String, Position>> changed = new ArrayList<>();
+        tickInputs.forEach((playerId, direction) -> {
+            if (!direction.equals(lastInputs.get(playerId))) {
+                changed.add(Map.entry(playerId, direction));
+            }
+        });
+        final Map<String, Position> drained = lastInputs;
+        lastInputs = tickInputs;
+        tickInputs = drained;
+        tickInputs.clear();
+        ticks++;
+        if (!ensure(1 + Integer.BYTES)) {
+            return;
+        }
+        buffer.put(TICK).putInt(changed.size());
+        for (final Map.Entry<String, Position> input : changed) {
+            if (!ensure(idSize(input.getKey()) + 2 * Double.BYTES)) {
+                return;
+            }
+            putId(input.getKey());
+            buffer.putDouble(input.getValue().x()).putDouble(input.getValue().y());
+        }
+        if (ticks % CHECKSUM_INTERVAL == 0 && ensure(1 + Long.BYTES)) {
+            buffer.put(CHECKSUM).putLong(checksum(world));
+        }
+    }
+
+    /**
+     * Hash of the exact state of the players and foods, in list order.
+     */
+    public static long checksum(final World world) {
+        long hash = 17;
+        for (final Player player : world.getPlayers()) {
+            hash = mix(hash, player);
+        }
+        for (final Food food : world.getFoods()) {
+            hash = mix(hash, food);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, final Entity entity) {
+        hash = hash * 31 + entity.getId().hashCode();
+        hash = hash * 31 + Double.doubleToLongBits(entity.getX());
+        hash = hash * 31 + Double.doubleToLongBits(entity.getY());
+        return hash * 31 + Double.doubleToLongBits(entity.getMass());
+    }
+
+    /**
+     * Writes out everything recorded so far, waiting for the disk.
+     */
+    public synchronized void flush() {
+        if (handOver()) {
+            awaitWrite();
+            if (writeError != null) {
+                fail(writeError);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        writer.shutdown();
+        if (open) {
+            open = false;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the journal " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean ensure(final int bytes) {
+        return open && (buffer.remaining() >= bytes || handOver());
+    }
+
+    // Gives the full buffer to the writer and goes on with the spare one, once the writer is done with it
+    private boolean handOver() {
+        if (!open) {
+            return false;
+        }
+        awaitWrite();
+        if (writeError != null) {
+            fail(writeError);
+            return false;
+        }
+        final ByteBuffer full = buffer.flip();
+        buffer = spare;
+        spare = full;
+        writing = writer.submit(() -> write(full));
+        return true;
+    }
+
+    private void write(final ByteBuffer full) {
+        try {
+            while (full.hasRemaining()) {
+                channel.write(full);
+            }
+        } catch (IOException e) {
+            writeError = e;
+        }
+        full.clear();
+    }
+
+    private void awaitWrite() {
+        if (writing == null) {
+            return;
+        }
+        try {
+            writing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            writeError = new IOException(e.getCause());
+        }
+    }
+
+    private void fail(final IOException e) {
+        System.err.println("Journal " + file + " stopped: " + e.getMessage());
+        open = false;
+        writer.shutdown();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Already failing
+        }
+    }
+
+    private static int idSize(final String id) {
+        return Short.BYTES + id.length() * 3;
+    }
+
+    private void putId(final String id) {
+        final byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    static String readId(final ByteBuffer input) {
+        final byte[] bytes = new byte[input.getShort()];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,98 @@
+package it.unibo.agar.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rebuilds a game from its {@link InputJournal}: a server seeded as the recorded one is fed the same
+ * registrations, removals and inputs and ticked back to back, with no clients and no waiting between ticks.
+ */
+public final class JournalReplayer {
+
+    /**
+     * @param checksumsVerified checksums of the journal matched by the replay
+     * @param divergedAtTick    first tick whose checksum did not match, -1 if none
+     */
+    public record Result(long ticks, World world, int registrations, int checksumsVerified, long divergedAtTick, long nanos) {
+
+        public boolean diverged() {
+            return divergedAtTick >= 0;
+        }
+    }
+
+    private JournalReplayer() { }
+
+    /**
+     * Replays the journal up to the given tick, or to its end when the tick is negative or beyond it.
+     */
+    public static Result replay(final Path file, final long untilTick) throws IOException {
+        final MappedByteBuffer input;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (input.remaining() < Integer.BYTES || input.getInt() != InputJournal.MAGIC) {
+            throw new IOException(file + " is not a game journal");
+        }
+        final long seed = input.getLong();
+        final FoodSpawner.Settings food = new FoodSpawner.Settings(input.getInt(), input.getInt(), input.getDouble(),
+                FoodSpawner.Distribution.values()[input.get()]);
+        final DistributedGameStateManager server = new DistributedGameStateManager(
+                DistributedGameStateManager.DEFAULT_INTEREST_RADIUS, 1, food, seed);
+        final int botTarget = input.getInt();
+        final int botInterval = input.getInt();
+        if (botTarget > 0) {
+            server.hostBots(botTarget, botInterval);
+        }
+
+        final long start = System.nanoTime();
+        long ticks = 0;
+        int registrations = 0;
+        int checksums = 0;
+        long divergedAt = -1;
+        while (input.hasRemaining() && (untilTick < 0 || ticks < untilTick) && server.isRunning()) {
+            try {
+                final byte type = input.get();
+                switch (type) {
+                    case InputJournal.REGISTRATION -> {
+                        final String playerId = InputJournal.readId(input);
+                        final String replayedId = server.registerPlayer().playerId();
+                        if (!replayedId.equals(playerId)) {
+                            throw new IOException("Registration of " + playerId + " replayed as " + replayedId);
+                        }
+                        registrations++;
+                    }
+                    case InputJournal.UNREGISTRATION -> server.unregisterPlayer(InputJournal.readId(input));
+                    case InputJournal.TICK -> {
+                        readInputs(input, server);
+                        server.tick();
+                        ticks++;
+                    }
+                    case InputJournal.CHECKSUM -> {
+                        if (InputJournal.checksum(server.getPublishedWorld()) == input.getLong()) {
+                            checksums++;
+                        } else if (divergedAt < 0) {
+                            divergedAt = ticks;
+                        }
+                    }
+                    default -> throw new IOException("Unknown record " + type + " at byte " + (input.position() - 1));
+                }
+            } catch (BufferUnderflowException e) {
+                // The last record was cut short, as when the server died while writing
+                break;
+            }
+        }
+        return new Result(ticks, server.getPublishedWorld(), registrations, checksums, divergedAt, System.nanoTime() - start);
+    }
+
+    private static void readInputs(final ByteBuffer input, final DistributedGameStateManager server) {
+        final int count = input.getInt();
+        for (int i = 0; i < count; i++) {
+            server.applyJournaledInput(InputJournal.readId(input), input.getDouble(), input.getDouble());
+        }
+    }
+}
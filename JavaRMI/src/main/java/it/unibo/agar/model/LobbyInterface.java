@@ -0,0 +1,19 @@
+package it.unibo.agar.model;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Entry point of a server hosting many rooms: it tells a joining client under which registry name
+ * to look up the game server of its room.
+ */
+public interface LobbyInterface extends Remote {
+
+    /**
+     * Picks the least loaded room, opening a new one when all of them are full.
+     */
+    String assignRoom() throws RemoteException;
+
+    List<String> rooms() throws RemoteException;
+}
@@ -0,0 +1,26 @@
+package it.unibo.agar.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Publish/subscribe transport between the server and its clients over a topic exchange.
+ */
+public interface MessageBus extends AutoCloseable {
+    String EXCHANGE = "agar";
+    String WORLD_UPDATES = "world.update";
+    String GAME_OVER = "player.gameover";
+    String PLAYER_EVENTS = "player.event";
+    // Messages queued for a subscriber, beyond which the oldest are dropped
+    int MAX_QUEUED = 64;
+
+    void publish(String routingKey, Object message);
+
+    /**
+     * Delivers asynchronously every message whose routing key matches the binding key,
+     * where '*' matches one word and '#' zero or more words.
+     */
+    void subscribe(String bindingKey, Consumer<Object> listener);
+
+    @Override
+    void close();
+}
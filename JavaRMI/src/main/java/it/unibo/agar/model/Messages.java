@@ -1,8 +1,52 @@
 package it.unibo.agar.model;
 
+import java.util.List;
+
 public class Messages {
 
-    public record RegistrationACK(String playerId, World world) implements java.io.Serializable, Message {};
+    public record RegistrationACK(String playerId, World world) implements java.io.Serializable, Message {
+        private Object writeReplace() {
+            return new BinaryCodec.Encoded(this);
+        }
+    };
+
+    /**
+     * Changes between two published versions of the world. A delta with no base version is a full snapshot.
+     */
+    public record WorldDelta(long baseVersion, long version, int width, int height,
+                             List<Player> players, List<String> removedPlayers,
+                             List<Food> addedFoods, List<String> removedFoods) implements java.io.Serializable, Message {
+
+        public boolean isSnapshot() {
+            return baseVersion == WorldReplicator.NO_VERSION;
+        }
+
+        private Object writeReplace() {
+            return new BinaryCodec.Encoded(this);
+        }
+    };
+
+    /**
+     * Input of a client tick: the server moves the player, so only its direction travels upstream,
+     * numbered so that the client knows which of its inputs a reply already reflects.
+     */
+    public record ClientInput(String playerId, double dirX, double dirY, long inputSequence, long lastVersion) implements java.io.Serializable, Message {
+        private Object writeReplace() {
+            return new BinaryCodec.Encoded(this);
+        }
+    };
+
+    /**
+     * The update comes with the sequence of the last input of the client the server had applied in that version
+     * and the number of ticks it had been applied for.
+     */
+    public record TickReply(boolean playing, WorldDelta update, long lastInput, int lastInputTicks) implements java.io.Serializable, Message {
+        private Object writeReplace() {
+            return new BinaryCodec.Encoded(this);
+        }
+    };
+
+    public record GameOver(String playerId) implements java.io.Serializable, Message {};
 
     public interface Message {};
 }
@@ -1,6 +1,9 @@
 package it.unibo.agar.model;
 
 public class Player extends AbstractEntity {
+
+    public static final double INITIAL_MASS = 120.0;
+
     public Player(final String id, final double x, final double y, final double mass) {
         super(id, x, y, mass);
     }
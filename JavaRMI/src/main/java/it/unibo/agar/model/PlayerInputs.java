@@ -0,0 +1,57 @@
+package it.unibo.agar.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The latest input of a player, kept in a slot written by the network threads without locks and read by the tick.
+ * Shared by the single server and the shards.
+ */
+final class PlayerInputs {
+
+    static final double MAX_DIRECTION = 2.0;
+    private static final int INTEREST_LOOKAHEAD_TICKS = 10;
+
+    private PlayerInputs() {
+    }
+
+    record Input(double dirX, double dirY, long sequence) {
+        static final Input NONE = new Input(0, 0, 0);
+    }
+
+    static AtomicReference<Input> newSlot() {
+        return new AtomicReference<>(Input.NONE);
+    }
+
+    static Input of(final AtomicReference<Input> slot) {
+        return slot != null ? slot.get() : Input.NONE;
+    }
+
+    /**
+     * Stores the direction, clamped in length. Inputs older than the last one stored are dropped;
+     * unnumbered inputs (sequence 0) are always applied.
+     */
+    static void apply(final AtomicReference<Input> slot, final double dirX, final double dirY, final long sequence) {
+        if (slot == null || !Double.isFinite(dirX) || !Double.isFinite(dirY)) {
+            return;
+        }
+        final double magnitude = Math.hypot(dirX, dirY);
+        final double scale = magnitude > MAX_DIRECTION ? MAX_DIRECTION / magnitude : 1.0;
+        final Input input = new Input(dirX * scale, dirY * scale, sequence);
+        Input current;
+        do {
+            current = slot.get();
+            if (sequence > 0 && sequence < current.sequence()) {
+                return;
+            }
+        } while (!slot.compareAndSet(current, input));
+    }
+
+    /**
+     * What the player sees, widened in proportion to its speed so that it does not run out of its view
+     * before the next update.
+     */
+    static WorldReplicator.InterestArea interestArea(final Player player, final Input input, final double radius) {
+        final double margin = Math.hypot(input.dirX(), input.dirY()) * DefaultGameStateManager.PLAYER_SPEED * INTEREST_LOOKAHEAD_TICKS;
+        return new WorldReplicator.InterestArea(player.getX(), player.getY(), radius + margin);
+    }
+}
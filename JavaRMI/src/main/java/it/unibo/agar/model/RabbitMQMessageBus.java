@@ -0,0 +1,63 @@
+package it.unibo.agar.model;
+
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+public class RabbitMQMessageBus implements MessageBus {
+    // Bounded queues drop the oldest messages, a client that lags behind resyncs instead of piling up
+    private static final Map<String, Object> QUEUE_ARGUMENTS = Map.of("x-max-length", MAX_QUEUED);
+
+    private final Connection connection;
+    private final Channel channel;
+
+    public RabbitMQMessageBus(final String host) throws IOException, TimeoutException {
+        ConnectionFactory factory = new ConnectionFactory();
+        factory.setHost(host);
+        this.connection = factory.newConnection();
+        this.channel = connection.createChannel();
+        this.channel.exchangeDeclare(EXCHANGE, BuiltinExchangeType.TOPIC);
+    }
+
+    @Override
+    public void publish(final String routingKey, final Object message) {
+        final byte[] body = BinaryCodec.encodeForWire(message);
+        try {
+            synchronized (channel) {
+                channel.basicPublish(EXCHANGE, routingKey, null, body);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void subscribe(final String bindingKey, final Consumer<Object> listener) {
+        try {
+            synchronized (channel) {
+                String queue = channel.queueDeclare("", false, true, true, QUEUE_ARGUMENTS).getQueue();
+                channel.queueBind(queue, EXCHANGE, bindingKey);
+                channel.basicConsume(queue, true,
+                        (consumerTag, delivery) -> listener.accept(BinaryCodec.decodeFromWire(delivery.getBody())),
+                        consumerTag -> { });
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package it.unibo.agar.model;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hosts many independent games in one JVM. Each room is a game server bound in the registry as
+ * {@code room-<n>} and ticked by its own game loop, all of them sharing a bounded pool of threads.
+ * A finished match is replaced by a new one on a thread of its own, so that the registry is never called from a tick.
+ * The manager is also the lobby that places joining clients in the least loaded room.
+ */
+public class RoomManager implements LobbyInterface {
+
+    public static final String LOBBY_NAME = "lobby";
+    private static final String ROOM_PREFIX = "room-";
+
+    private final Registry registry;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService restarter = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "room-restarter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Supplier<DistributedGameStateManager> roomFactory;
+    private final long stepMillis;
+    private final int maxStepsPerFrame;
+    private final int maxRooms;
+    private final int playersPerRoom;
+    private final Map<String, Room> rooms = new LinkedHashMap<>();
+    private int nextRoom = 1;
+
+    /**
+     * @param threads        threads ticking all the rooms
+     * @param maxRooms       rooms opened at most; once they are all full, players still go to the least loaded
+     * @param playersPerRoom players beyond which a room counts as full
+     */
+    public RoomManager(final Registry registry, final int threads, final long stepMillis, final int maxStepsPerFrame,
+                       final int maxRooms, final int playersPerRoom, final Supplier<DistributedGameStateManager> roomFactory) {
+        this.registry = registry;
+        this.stepMillis = stepMillis;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+        this.maxRooms = maxRooms;
+        this.playersPerRoom = playersPerRoom;
+        this.roomFactory = roomFactory;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, task -> {
+            final Thread thread = new Thread(task, "room-tick-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start(final int initialRooms) throws RemoteException {
+        for (int i = 0; i < initialRooms; i++) {
+            open(reserveRoom());
+        }
+        registry.rebind(LOBBY_NAME, UnicastRemoteObject.exportObject(this, 0));
+    }
+
+    /**
+     * Picks the room under the lock and binds a new one outside of it, so that a slow registry does not hold up
+     * the other clients; a client sent to a room still opening waits until it is bound.
+     */
+    @Override
+    public String assignRoom() throws RemoteException {
+        Room room;
+        boolean opened = false;
+        synchronized (this) {
+            room = rooms.values().stream().min(Comparator.comparingInt(Room::load)).orElse(null);
+            if ((room == null || room.load() >= playersPerRoom) && rooms.size() < maxRooms) {
+                room = reserveRoom();
+                opened = true;
+            }
+            if (room == null) {
+                throw new RemoteException("No room available");
+            }
+            room.assigned.incrementAndGet();
+        }
+        if (opened) {
+            open(room);
+        }
+        try {
+            room.bound.join();
+        } catch (CompletionException e) {
+            throw new RemoteException("Could not open " + room.name, e.getCause());
+        }
+        return room.name;
+    }
+
+    @Override
+    public synchronized List<String> rooms() {
+        return new ArrayList<>(rooms.keySet());
+    }
+
+    public void shutdown() {
+        final List<Room> closing;
+        synchronized (this) {
+            closing = new ArrayList<>(rooms.values());
+            rooms.clear();
+        }
+        restarter.shutdown();
+        closing.forEach(this::close);
+        executor.shutdown();
+        try {
+            registry.unbind(LOBBY_NAME);
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (RemoteException | NotBoundException e) {
+            System.err.println("Could not unbind the lobby: " + e.getMessage());
+        }
+    }
+
+    private synchronized Room reserveRoom() {
+        final Room room = new Room(ROOM_PREFIX + nextRoom++, roomFactory.get());
+        rooms.put(room.name, room);
+        return room;
+    }
+
+    // Exports and binds the room, then starts ticking it; called without holding the lock
+    private void open(final Room room) throws RemoteException {
+        try {
+            registry.rebind(room.name, (GameServerInterface) UnicastRemoteObject.exportObject(room.server, 0));
+        } catch (RemoteException | RuntimeException e) {
+            synchronized (this) {
+                rooms.remove(room.name, room);
+            }
+            close(room);
+            room.bound.completeExceptionally(e);
+            throw e;
+        }
+        room.server.getMetrics().register(room.name);
+        room.loop = new GameLoop(stepMillis, maxStepsPerFrame, () -> step(room), () -> { }, executor);
+        room.loop.start();
+        room.bound.complete(null);
+    }
+
+    // The loop keeps calling a finished room until it is replaced, which is then already under way
+    private void step(final Room room) {
+        if (room.server.isRunning()) {
+            room.server.tick();
+        } else if (room.restarting.compareAndSet(false, true)) {
+            try {
+                restarter.execute(() -> replace(room));
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the room is closed with the others
+            }
+        }
+    }
+
+    // A finished match leaves its name to a new game, the players of the old one got their game over
+    private void replace(final Room finished) {
+        final Room room;
+        synchronized (this) {
+            if (rooms.get(finished.name) != finished) {
+                return;
+            }
+            room = new Room(finished.name, roomFactory.get());
+            rooms.put(room.name, room);
+        }
+        close(finished);
+        try {
+            open(room);
+            System.out.println("Match over in " + room.name + ", a new one started");
+        } catch (RemoteException e) {
+            System.err.println("Could not restart " + room.name + ": " + e.getMessage());
+        }
+    }
+
+    private void close(final Room room) {
+        if (room.loop != null) {
+            room.loop.stop();
+        }
+        room.server.terminate();
+        room.server.getMetrics().unregister(room.name);
+        try {
+            UnicastRemoteObject.unexportObject(room.server, true);
+        } catch (NoSuchObjectException e) {
+            // Already unexported
+        }
+    }
+
+    private static final class Room {
+        private final String name;
+        private final DistributedGameStateManager server;
+        private final AtomicInteger assigned = new AtomicInteger();
+        private final CompletableFuture<Void> bound = new CompletableFuture<>();
+        private final AtomicBoolean restarting = new AtomicBoolean();
+        private volatile GameLoop loop;
+
+        private Room(final String name, final DistributedGameStateManager server) {
+            this.name = name;
+            this.server = server;
+        }
+
+        // Players in the room plus the ones sent here that have not registered yet
+        private int load() {
+            return server.getRegisteredPlayers() + Math.max(0, assigned.get() - server.getRegistrationCount());
+        }
+    }
+}
@@ -3,8 +3,8 @@ package it.unibo.agar.model;
 public class ServerEvents {
 
     public record Registration () implements ServerEvent {};
-    public record Unregistration () implements ServerEvent {};
-    public record PlayerUpdate () implements ServerEvent {};
+    public record Unregistration (String playerId) implements ServerEvent {};
+    public record PlayerUpdate (String playerId, double dirX, double dirY, long inputSequence) implements ServerEvent {};
 
-    public interface ServerEvent {};
+    public interface ServerEvent extends java.io.Serializable {};
 }
@@ -1,16 +1,39 @@
 package it.unibo.agar.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 public class ServerGameStateManager extends DefaultGameStateManager{
 
+    private static final int PLAYERS_PER_MOVE_TASK = 256;
+
     private List<Player> playersToRemove;
+    private final ForkJoinPool tickPool;
+    private int lastEatenFoods = 0;
 
     public ServerGameStateManager(World initialWorld) {
+        this(initialWorld, null);
+    }
+
+    /**
+     * Moves the players and resolves the eating of each tick on the given pool, with the same outcome as on a single thread.
+     */
+    public ServerGameStateManager(World initialWorld, ForkJoinPool tickPool) {
         super(initialWorld);
         this.playersToRemove = new ArrayList<>();
+        this.tickPool = tickPool;
+    }
+
+    /**
+     * Also refills the food eaten with the given spawner, instead of the default one.
+     */
+    public ServerGameStateManager(World initialWorld, ForkJoinPool tickPool, FoodSpawner foodSpawner) {
+        this(initialWorld, tickPool);
+        this.foodSpawner = foodSpawner;
     }
 
     @Override
@@ -23,9 +46,36 @@ public class ServerGameStateManager extends DefaultGameStateManager{
         super.setPlayerDirection(playerId, dx, dy);
     }
 
+    /**
+     * Moves every player along its last direction input in one pass, then resolves eating.
+     */
     @Override
     public void tick() {
-        super.world = this.handleEating(super.world);
+        super.world = this.foodSpawner.refill(this.handleEating(this.moveAllPlayers(super.world)));
+        this.cleanupPlayerDirections();
+    }
+
+    @Override
+    protected World moveAllPlayers(World currentWorld) {
+        List<Player> players = currentWorld.getPlayers();
+        if (tickPool == null || tickPool.getParallelism() <= 1 || players.size() <= PLAYERS_PER_MOVE_TASK) {
+            return super.moveAllPlayers(currentWorld);
+        }
+        // Directions are read here, so the tasks only touch their own slots of the arrays
+        Position[] directions = new Position[players.size()];
+        for (int i = 0; i < directions.length; i++) {
+            directions[i] = playerDirections.getOrDefault(players.get(i).getId(), Position.ZERO);
+        }
+        Player[] moved = new Player[players.size()];
+        tickPool.invoke(new MoveRange(currentWorld, directions, moved, 0, moved.length));
+        return new World(currentWorld.getWidth(), currentWorld.getHeight(), Arrays.asList(moved), currentWorld.getFoods());
+    }
+
+    /**
+     * Foods eaten in the last eating pass.
+     */
+    public synchronized int getLastEatenFoods() {
+        return lastEatenFoods;
     }
 
     public List<Player> getPlayersToRemove(){
@@ -36,22 +86,12 @@ public class ServerGameStateManager extends DefaultGameStateManager{
 
     @Override
     public synchronized World handleEating(World currentWorld) {
-        final List<Player> updatedPlayers = currentWorld.getPlayers().stream()
-                .map(player -> growPlayer(currentWorld, player))
-                .toList();
-
-        final List<Food> foodsToRemove = currentWorld.getPlayers().stream()
-                .flatMap(player -> eatenFoods(currentWorld, player).stream())
-                .distinct()
-                .toList();
-
-        playersToRemove.addAll(currentWorld.getPlayers().stream()
-                .flatMap(player -> eatenPlayers(currentWorld, player).stream())
-                .distinct()
-                .toList());
-
-        return new World(currentWorld.getWidth(), currentWorld.getHeight(), updatedPlayers, currentWorld.getFoods())
-                .removeFoods(foodsToRemove)
+        final EatingManager.EatingResult eating = EatingManager.resolve(currentWorld, tickPool);
+        playersToRemove.addAll(eating.eatenPlayers());
+        lastEatenFoods = eating.eatenFoods().size();
+
+        return new World(currentWorld.getWidth(), currentWorld.getHeight(), eating.players(), currentWorld.getFoods())
+                .removeFoods(eating.eatenFoods())
                 .removePlayers(playersToRemove);
     }
 
@@ -60,6 +100,12 @@ public class ServerGameStateManager extends DefaultGameStateManager{
         super.updateWorld(world);
     }
 
+    public synchronized void addPlayer(Player player) {
+        List<Player> updatedPlayers = new ArrayList<>(this.world.getPlayers());
+        updatedPlayers.add(player);
+        this.world = new World(this.world.getWidth(), this.world.getHeight(), updatedPlayers, this.world.getFoods());
+    }
+
     public synchronized void removePlayer(String playerId) {
         List<Player> updatedPlayers = this.world.getPlayers().stream()
                 .filter(p -> !p.getId().equals(playerId))
@@ -67,16 +113,31 @@ public class ServerGameStateManager extends DefaultGameStateManager{
         this.world = new World(this.world.getWidth(), this.world.getHeight(), updatedPlayers, this.world.getFoods());
     }
 
-    public synchronized void movePlayer(String playerId, double newX, double newY) {
-        final List<Player> updatedPlayers = super.world.getPlayers().stream()
-                .map(player -> {
-                    return player.getId().equals(playerId) ?  player.moveTo(newX, newY) : player;
-                })
-                .collect(Collectors.toList());
-
-        super.world = new World(super.world.getWidth(), super.world.getHeight(), updatedPlayers,
-                super.world.getFoods());
+    private static final class MoveRange extends RecursiveAction {
+        private final World world;
+        private final Position[] directions;
+        private final Player[] moved;
+        private final int from;
+        private final int to;
+
+        private MoveRange(World world, Position[] directions, Player[] moved, int from, int to) {
+            this.world = world;
+            this.directions = directions;
+            this.moved = moved;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PLAYERS_PER_MOVE_TASK) {
+                for (int i = from; i < to; i++) {
+                    moved[i] = movePlayer(world, world.getPlayers().get(i), directions[i]);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new MoveRange(world, directions, moved, from, middle), new MoveRange(world, directions, moved, middle, to));
+            }
+        }
     }
-
-
 }
@@ -0,0 +1,189 @@
+package it.unibo.agar.model;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tick time, latency of the remote calls and size of the encoded payloads of a game server, with counts
+ * of players, foods and eaten entities. Recording only updates counters, so it can run on every tick
+ * and every call; the figures are read through JMX or as a log line.
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+
+    public static final String OBJECT_NAME = "it.unibo.agar:type=ServerMetrics";
+
+    public enum Call { REGISTER_PLAYER, REJOIN, EXCHANGE, GET_WORLD_UPDATE, UNREGISTER_PLAYER, UPDATE_PLAYER, GET_WORLD, CHECK_GAME_OVER }
+
+    private final Histogram tickTime = new Histogram();
+    private final Histogram[] callLatencies = new Histogram[Call.values().length];
+    private final Histogram payloadSizes = new Histogram();
+    private final LongAdder foodsEaten = new LongAdder();
+    private final LongAdder playersEaten = new LongAdder();
+    private final DistributedGameStateManager server;
+
+    public ServerMetrics(final DistributedGameStateManager server) {
+        this.server = server;
+        Arrays.setAll(callLatencies, i -> new Histogram());
+    }
+
+    /**
+     * Start of a call or tick of the server: the payloads the thread encodes from now on are counted for it.
+     *
+     * @return the start time to pass when recording
+     */
+    public long start() {
+        BinaryCodec.recordWireSizesIn(payloadSizes);
+        return System.nanoTime();
+    }
+
+    public void recordTick(final long nanos, final int foodsEatenInTick, final int playersEatenInTick) {
+        tickTime.record(nanos);
+        foodsEaten.add(foodsEatenInTick);
+        playersEaten.add(playersEatenInTick);
+    }
+
+    public void recordCall(final Call call, final long nanos) {
+        callLatencies[call.ordinal()].record(nanos);
+    }
+
+    /**
+     * Registers this object in the platform MBean server.
+     */
+    public void register() {
+        registerAs(OBJECT_NAME);
+    }
+
+    /**
+     * Registers the metrics of one of the rooms of the JVM, under the name of the room.
+     */
+    public void register(final String room) {
+        registerAs(OBJECT_NAME + ",room=" + room);
+    }
+
+    public void unregister(final String room) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME + ",room=" + room));
+        } catch (JMException e) {
+            // Never registered
+        }
+    }
+
+    private void registerAs(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+        } catch (JMException e) {
+            System.err.println("Metrics are not available through JMX: " + e.getMessage());
+        }
+    }
+
+    public String describe() {
+        return String.format("ticks %s; exchange %s; payload n=%d mean=%.0f p99=%d bytes; players %d (%d registered, %d bots), "
+                        + "foods %d; eaten %d foods and %d players",
+                tickTime.describeNanos(), latency(Call.EXCHANGE).describeNanos(), payloadSizes.getCount(),
+                getPayloadMeanBytes(), getPayloadP99Bytes(), getPlayers(), getRegisteredPlayers(), getBots(), getFoods(),
+                getFoodsEaten(), getPlayersEaten());
+    }
+
+    private Histogram latency(final Call call) {
+        return callLatencies[call.ordinal()];
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getTicks() {
+        return tickTime.getCount();
+    }
+
+    @Override
+    public double getTickMeanMillis() {
+        return tickTime.getMean() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public double getTickP99Millis() {
+        return millis(tickTime.valueAtPercentile(99));
+    }
+
+    @Override
+    public double getTickMaxMillis() {
+        return millis(tickTime.getMax());
+    }
+
+    @Override
+    public long getCalls() {
+        return Arrays.stream(callLatencies).mapToLong(Histogram::getCount).sum();
+    }
+
+    @Override
+    public double getExchangeP50Millis() {
+        return millis(latency(Call.EXCHANGE).valueAtPercentile(50));
+    }
+
+    @Override
+    public double getExchangeP99Millis() {
+        return millis(latency(Call.EXCHANGE).valueAtPercentile(99));
+    }
+
+    @Override
+    public double getPayloadMeanBytes() {
+        return payloadSizes.getMean();
+    }
+
+    @Override
+    public long getPayloadP99Bytes() {
+        return payloadSizes.valueAtPercentile(99);
+    }
+
+    @Override
+    public int getRegisteredPlayers() {
+        return server.getRegisteredPlayers();
+    }
+
+    @Override
+    public int getBots() {
+        return server.getBots();
+    }
+
+    @Override
+    public int getPlayers() {
+        return server.getPublishedWorld().getPlayers().size();
+    }
+
+    @Override
+    public int getFoods() {
+        return server.getPublishedWorld().getFoods().size();
+    }
+
+    @Override
+    public long getFoodsEaten() {
+        return foodsEaten.sum();
+    }
+
+    @Override
+    public long getPlayersEaten() {
+        return playersEaten.sum();
+    }
+
+    @Override
+    public String[] getCallLatencies() {
+        return Arrays.stream(Call.values())
+                .map(call -> call.name().toLowerCase() + " " + latency(call).describeNanos())
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public void reset() {
+        tickTime.reset();
+        Arrays.stream(callLatencies).forEach(Histogram::reset);
+        payloadSizes.reset();
+        foodsEaten.reset();
+        playersEaten.reset();
+    }
+}
@@ -0,0 +1,44 @@
+package it.unibo.agar.model;
+
+/**
+ * Management view of the server metrics; durations are in milliseconds.
+ */
+public interface ServerMetricsMBean {
+
+    long getTicks();
+
+    double getTickMeanMillis();
+
+    double getTickP99Millis();
+
+    double getTickMaxMillis();
+
+    long getCalls();
+
+    double getExchangeP50Millis();
+
+    double getExchangeP99Millis();
+
+    double getPayloadMeanBytes();
+
+    long getPayloadP99Bytes();
+
+    int getRegisteredPlayers();
+
+    int getBots();
+
+    int getPlayers();
+
+    int getFoods();
+
+    long getFoodsEaten();
+
+    long getPlayersEaten();
+
+    /**
+     * One line per remote method with its call count and latency percentiles.
+     */
+    String[] getCallLatencies();
+
+    void reset();
+}
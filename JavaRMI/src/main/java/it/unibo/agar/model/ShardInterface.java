@@ -0,0 +1,15 @@
+package it.unibo.agar.model;
+
+import java.rmi.RemoteException;
+
+/**
+ * A game server owning a vertical strip of a world split among several servers. Clients call it as any game
+ * server, the calls for a player that crossed into another strip are forwarded to its new owner.
+ */
+public interface ShardInterface extends GameServerInterface {
+
+    /**
+     * Queues the border update of a neighbour, applied at the next tick.
+     */
+    void receiveBorder(ShardMessages.BorderUpdate update) throws RemoteException;
+}
@@ -0,0 +1,32 @@
+package it.unibo.agar.model;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Messages exchanged every tick between neighbouring shards of a world.
+ */
+public class ShardMessages {
+
+    /**
+     * A player leaving the region of a shard, with the input it was moving by and the ticks it was applied for.
+     * The id grows with every hand-off
+     * to the same neighbour, which adopts each one once however many times it is sent.
+     */
+    public record HandOff(long id, Player player, double dirX, double dirY, long inputSequence, int inputTicks) implements Serializable {}
+
+    /**
+     * What a shard tells a neighbour after its tick: the entities it owns near their common border, to be
+     * shown and eaten on the other side, the mass earned there by the players of the neighbour and the
+     * players it hands over, until the neighbour acknowledges them. {@code maxRadius} bounds how far into the region
+     * of the sender a body can reach; {@code handOffAck} is the last hand-off of the neighbour the sender adopted.
+     */
+    public record BorderUpdate(int fromShard, long tick, double maxRadius, List<Player> ghostPlayers, List<Food> ghostFoods,
+                               Map<String, Double> credits, List<HandOff> handOffs, long handOffAck) implements Serializable {
+
+        BorderUpdate withHandOffs(final List<HandOff> adopted) {
+            return new BorderUpdate(fromShard, tick, maxRadius, ghostPlayers, ghostFoods, credits, adopted, handOffAck);
+        }
+    }
+}
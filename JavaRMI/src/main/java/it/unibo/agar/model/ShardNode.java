@@ -0,0 +1,594 @@
+package it.unibo.agar.model;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * One strip of a world split by x among several servers. The shard owns the players and the foods whose centre
+ * lies in its strip and alone decides whether they are eaten; after each tick it sends each neighbour the
+ * bodies it owns near their border as ghosts, so that eating across the border is resolved on both sides,
+ * and hands over the players that left the strip. Neighbours are reached through {@link ShardInterface},
+ * over RMI or directly when all the shards run in one JVM, and looked up again after a failed call.
+ * A hand-off is sent with every update until the neighbour acknowledges it, and adopted only once; the inputs
+ * a player sent meanwhile are forwarded to its new owner with the acknowledgement, and the later ones as they come.
+ * <p>
+ * Eating follows the rules of the single server, resolved on the owned bodies and the ghosts together, but
+ * ghosts are one tick old: across a border a player eats with the sizes and positions of the previous tick of
+ * the other shard, and the mass it earns there is credited one tick later.
+ */
+public class ShardNode implements ShardInterface {
+
+    public static final String NAME_PREFIX = "shard-";
+    private static final double GHOST_FOOD_MARGIN = 100.0;
+    // How far a player may move between the tick a ghost describes and the tick it is used in
+    private static final double GHOST_LAG_MARGIN = 2 * PlayerInputs.MAX_DIRECTION * DefaultGameStateManager.PLAYER_SPEED;
+    private static final long LOOKUP_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int index;
+    private final int shards;
+    private final int worldWidth;
+    private final int worldHeight;
+    private final double minX;
+    private final double maxX;
+    private final int maxFood;
+    private final double interestRadius;
+    private final Random random;
+    private final WorldReplicator replicator = new WorldReplicator();
+    private final Map<String, AtomicReference<PlayerInputs.Input>> inputs = new ConcurrentHashMap<>();
+    // Players handed over and not yet owned by either side, to keep serving their view meanwhile
+    private final Map<String, Player> inTransit = new ConcurrentHashMap<>();
+    private final Map<String, Neighbour> movedTo = new ConcurrentHashMap<>();
+    private final Queue<ShardMessages.BorderUpdate> inbox = new ConcurrentLinkedQueue<>();
+    private final Neighbour left;
+    private final Neighbour right;
+    private final Map<String, Double> creditsDue = new HashMap<>();
+    // Inputs applied in the last tick, and the ones handed over with arriving players
+    private Map<String, WorldReplicator.AppliedInput> appliedInputs = Map.of();
+    private final Map<String, WorldReplicator.AppliedInput> arrivedInputs = new HashMap<>();
+    private List<Player> players = new ArrayList<>();
+    private List<Food> foods = new ArrayList<>();
+    private int nextPlayer = 0;
+    private int nextFood = 0;
+    private double foodBudget = 0;
+    private long ticks = 0;
+    // Mass earned here by players of the neighbours, and earned there by players of this shard
+    private double massCreditedOut = 0;
+    private double massCreditedIn = 0;
+    private IntFunction<ShardInterface> lookup;
+    private volatile World published;
+
+    /**
+     * @param index  position of the strip from the left, from 0 to {@code shards - 1}
+     * @param food   foods kept in the strip
+     */
+    public ShardNode(final int index, final int shards, final int worldWidth, final int worldHeight, final int food,
+                     final double interestRadius, final Random random) {
+        this.index = index;
+        this.shards = shards;
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.minX = (double) worldWidth * index / shards;
+        this.maxX = (double) worldWidth * (index + 1) / shards;
+        this.maxFood = food;
+        this.interestRadius = interestRadius;
+        this.random = random;
+        this.left = new Neighbour("left", index - 1);
+        this.right = new Neighbour("right", index < shards - 1 ? index + 1 : -1);
+        while (foods.size() < maxFood) {
+            spawnFood();
+        }
+        this.published = new World(worldWidth, worldHeight, List.of(), List.copyOf(foods));
+        this.replicator.publish(published);
+    }
+
+    /**
+     * Splits a world among shards that call each other directly, all ticked by the caller.
+     */
+    public static List<ShardNode> inProcess(final int shards, final int worldWidth, final int worldHeight,
+                                            final int foodPerShard, final double interestRadius, final long seed) {
+        final List<ShardNode> nodes = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            nodes.add(new ShardNode(i, shards, worldWidth, worldHeight, foodPerShard, interestRadius, new Random(seed + i)));
+        }
+        nodes.forEach(node -> node.connect(nodes::get));
+        return nodes;
+    }
+
+    /**
+     * Sets how to find the shard of a strip by its index, returning null while it is not reachable. It is called
+     * by the tick that first needs a neighbour and again, at most once a second, after a call to it failed.
+     */
+    public synchronized void connect(final IntFunction<ShardInterface> shardLookup) {
+        this.lookup = shardLookup;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    @Override
+    public void receiveBorder(final ShardMessages.BorderUpdate update) {
+        final Neighbour from = update.fromShard() < index ? left : right;
+        // A resent update may arrive while the first delivery of it is still running
+        synchronized (from) {
+            final List<ShardMessages.HandOff> adopted = new ArrayList<>(update.handOffs().size());
+            for (final ShardMessages.HandOff handOff : update.handOffs()) {
+                if (handOff.id() <= from.adoptedHandOff) {
+                    continue;
+                }
+                // Arriving players can play before the next tick adopts them
+                final String playerId = handOff.player().getId();
+                inTransit.put(playerId, handOff.player());
+                inputs.put(playerId, new AtomicReference<>(new PlayerInputs.Input(handOff.dirX(), handOff.dirY(), handOff.inputSequence())));
+                movedTo.remove(playerId);
+                from.adoptedHandOff = handOff.id();
+                adopted.add(handOff);
+            }
+            inbox.add(adopted.size() == update.handOffs().size() ? update : update.withHandOffs(adopted));
+        }
+    }
+
+    @Override
+    public synchronized Messages.RegistrationACK registerPlayer() {
+        final String playerId = "p" + ((long) nextPlayer++ * shards + index + 1);
+        final Player player = new Player(playerId, minX + random.nextDouble() * (maxX - minX),
+                random.nextDouble() * worldHeight, Player.INITIAL_MASS);
+        players.add(player);
+        inputs.put(playerId, PlayerInputs.newSlot());
+        final List<Player> visible = new ArrayList<>(published.getPlayers());
+        visible.add(player);
+        published = new World(worldWidth, worldHeight, visible, published.getFoods());
+        return new Messages.RegistrationACK(playerId, published);
+    }
+
+    /**
+     * Shards keep no checkpoints, so there is no match to rejoin.
+     */
+    @Override
+    public Messages.RegistrationACK rejoin(final String playerId) {
+        return null;
+    }
+
+    @Override
+    public Messages.TickReply exchange(final Messages.ClientInput input) throws RemoteException {
+        final ShardInterface owner = ownerOf(input.playerId());
+        if (owner != null) {
+            final Messages.TickReply reply = owner.exchange(input);
+            if (!reply.playing()) {
+                movedTo.remove(input.playerId());
+            }
+            return reply;
+        }
+        if (!inputs.containsKey(input.playerId())) {
+            return new Messages.TickReply(false, null, 0, 0);
+        }
+        applyInput(input.playerId(), input.dirX(), input.dirY(), input.inputSequence());
+        final Messages.WorldDelta update = viewUpdate(input.playerId(), input.lastVersion());
+        final WorldReplicator.AppliedInput applied = replicator.appliedInput(input.playerId(), update.version());
+        return new Messages.TickReply(true, update, applied.sequence(), applied.ticks());
+    }
+
+    @Override
+    @Deprecated
+    public void updatePlayer(final String playerId, final double posX, final double posY, final double dirX, final double dirY)
+            throws RemoteException {
+        final ShardInterface owner = ownerOf(playerId);
+        if (owner != null) {
+            owner.updatePlayer(playerId, posX, posY, dirX, dirY);
+        } else {
+            applyInput(playerId, dirX, dirY, 0);
+        }
+    }
+
+    @Override
+    public void unregisterPlayer(final String playerId) throws RemoteException {
+        final ShardInterface owner = ownerOf(playerId);
+        if (owner != null) {
+            movedTo.remove(playerId);
+            owner.unregisterPlayer(playerId);
+            return;
+        }
+        synchronized (this) {
+            players.removeIf(player -> player.getId().equals(playerId));
+            inputs.remove(playerId);
+            replicator.forget(playerId);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public World getWorld() {
+        return published;
+    }
+
+    @Override
+    public Messages.WorldDelta getWorldUpdate(final long sinceVersion) {
+        return replicator.deltaSince(sinceVersion);
+    }
+
+    @Override
+    public Messages.WorldDelta getWorldUpdate(final String playerId, final long sinceVersion) throws RemoteException {
+        final ShardInterface owner = ownerOf(playerId);
+        return owner != null ? owner.getWorldUpdate(playerId, sinceVersion) : viewUpdate(playerId, sinceVersion);
+    }
+
+    @Override
+    @Deprecated
+    public boolean checkGameOver(final String playerId) throws RemoteException {
+        final ShardInterface owner = ownerOf(playerId);
+        return owner != null ? owner.checkGameOver(playerId) : inputs.containsKey(playerId);
+    }
+
+    /**
+     * The shard a player moved to, or null when this shard serves it or does not know it.
+     *
+     * @throws RemoteException when the player moved to a neighbour that is not reachable at the moment
+     */
+    private ShardInterface ownerOf(final String playerId) throws RemoteException {
+        if (inputs.containsKey(playerId)) {
+            return null;
+        }
+        final Neighbour neighbour = movedTo.get(playerId);
+        if (neighbour == null) {
+            return null;
+        }
+        final ShardInterface link = neighbour.link;
+        if (link == null) {
+            throw new RemoteException("The " + neighbour.side + " neighbour of shard " + index + " serving " + playerId + " is not reachable");
+        }
+        return link;
+    }
+
+    private void applyInput(final String playerId, final double dirX, final double dirY, final long sequence) {
+        PlayerInputs.apply(inputs.get(playerId), dirX, dirY, sequence);
+    }
+
+    private Messages.WorldDelta viewUpdate(final String playerId, final long sinceVersion) {
+        final Player player = published.getPlayerById(playerId).orElse(inTransit.get(playerId));
+        if (player == null) {
+            return replicator.deltaFor(playerId, sinceVersion, WorldReplicator.InterestArea.EMPTY);
+        }
+        return replicator.deltaFor(playerId, sinceVersion, PlayerInputs.interestArea(player, inputOf(playerId), interestRadius));
+    }
+
+    public synchronized void tick() {
+        drainInbox();
+        final World bounds = new World(worldWidth, worldHeight, List.of(), List.of());
+        final Map<String, WorldReplicator.AppliedInput> appliedInputs = new HashMap<>(players.size() * 2);
+        final List<Player> moved = new ArrayList<>(players.size());
+        for (final Player player : players) {
+            final PlayerInputs.Input input = inputOf(player.getId());
+            moved.add(DefaultGameStateManager.movePlayer(bounds, player, new Position(input.dirX(), input.dirY())));
+            final WorldReplicator.AppliedInput previous = this.appliedInputs.getOrDefault(player.getId(),
+                    arrivedInputs.getOrDefault(player.getId(), WorldReplicator.AppliedInput.NONE));
+            appliedInputs.put(player.getId(), previous.then(input.sequence()));
+        }
+
+        final Set<String> owned = new HashSet<>();
+        moved.forEach(player -> owned.add(player.getId()));
+        final List<Player> ghosts = new ArrayList<>();
+        final Map<String, Neighbour> ghostOwners = new HashMap<>();
+        for (final Neighbour neighbour : List.of(left, right)) {
+            for (final Player ghost : neighbour.ghosts) {
+                if (!owned.contains(ghost.getId())) {
+                    ghosts.add(ghost);
+                    ghostOwners.put(ghost.getId(), neighbour);
+                }
+            }
+        }
+        final List<Player> everyone = new ArrayList<>(moved);
+        everyone.addAll(ghosts);
+        final List<Food> allFoods = new ArrayList<>(foods);
+        allFoods.addAll(left.ghostFoods);
+        allFoods.addAll(right.ghostFoods);
+
+        // Only the fate of the bodies owned here is decided here, whoever eats them
+        final Map<String, Double> gains = new HashMap<>();
+        final Set<Food> ownedFoods = new HashSet<>(foods);
+        final Set<Food> eatenFoods = new HashSet<>();
+        final Set<String> eatenPlayers = new HashSet<>();
+        EatingManager.resolve(new World(worldWidth, worldHeight, everyone, allFoods), new EatingManager.Meals() {
+            @Override
+            public void food(final Player eater, final Food food) {
+                if (ownedFoods.contains(food)) {
+                    eatenFoods.add(food);
+                    gains.merge(eater.getId(), food.getMass(), Double::sum);
+                }
+            }
+
+            @Override
+            public void player(final Player eater, final Player other, final boolean grows, final boolean eaten) {
+                if (owned.contains(other.getId())) {
+                    if (grows) {
+                        gains.merge(eater.getId(), other.getMass(), Double::sum);
+                    }
+                    if (eaten) {
+                        eatenPlayers.add(other.getId());
+                    }
+                }
+            }
+        });
+        gains.forEach((playerId, mass) -> {
+            if (owned.contains(playerId)) {
+                creditsDue.merge(playerId, mass, Double::sum);
+            } else {
+                ghostOwners.get(playerId).credits.merge(playerId, mass, Double::sum);
+                massCreditedOut += mass;
+            }
+        });
+
+        final List<Player> survivors = new ArrayList<>(moved.size());
+        for (final Player player : moved) {
+            if (eatenPlayers.contains(player.getId())) {
+                inputs.remove(player.getId());
+                replicator.forget(player.getId());
+            } else {
+                final Double credit = creditsDue.remove(player.getId());
+                survivors.add(credit == null ? player : new Player(player.getId(), player.getX(), player.getY(), player.getMass() + credit));
+            }
+        }
+        settleCredits();
+        foods.removeAll(eatenFoods);
+        refillFood();
+        players = handOff(survivors, appliedInputs);
+        ticks++;
+
+        final List<Player> visiblePlayers = new ArrayList<>(players);
+        visiblePlayers.addAll(ghosts);
+        final List<Food> visibleFoods = new ArrayList<>(foods);
+        visibleFoods.addAll(left.ghostFoods);
+        visibleFoods.addAll(right.ghostFoods);
+        published = new World(worldWidth, worldHeight, visiblePlayers, visibleFoods);
+        replicator.publish(published, appliedInputs);
+        this.appliedInputs = appliedInputs;
+        arrivedInputs.clear();
+        sendBorder(left, minX);
+        sendBorder(right, maxX);
+    }
+
+    private PlayerInputs.Input inputOf(final String playerId) {
+        return PlayerInputs.of(inputs.get(playerId));
+    }
+
+    private void drainInbox() {
+        ShardMessages.BorderUpdate update;
+        while ((update = inbox.poll()) != null) {
+            final Neighbour from = update.fromShard() < index ? left : right;
+            final long acknowledged = update.handOffAck();
+            // Only the acknowledgement tells that a hand-off arrived, even when its delivery seemed to fail
+            from.pending.removeIf(pending -> {
+                if (pending.handOff().id() > acknowledged) {
+                    return false;
+                }
+                handedOver(from, pending);
+                return true;
+            });
+            if (update.tick() >= from.ghostTick) {
+                from.ghostTick = update.tick();
+                from.ghosts = update.ghostPlayers();
+                from.ghostFoods = update.ghostFoods();
+                from.maxRadius = update.maxRadius();
+            }
+            update.credits().forEach((playerId, mass) -> {
+                creditsDue.merge(playerId, mass, Double::sum);
+                massCreditedIn += mass;
+            });
+            for (final ShardMessages.HandOff handOff : update.handOffs()) {
+                players.add(handOff.player());
+                inTransit.remove(handOff.player().getId());
+                arrivedInputs.put(handOff.player().getId(), new WorldReplicator.AppliedInput(handOff.inputSequence(), handOff.inputTicks()));
+            }
+        }
+    }
+
+    /**
+     * Passes on the credits of players that moved on, keeping the ones of players still being handed over.
+     */
+    private void settleCredits() {
+        creditsDue.entrySet().removeIf(credit -> {
+            final String playerId = credit.getKey();
+            if (inTransit.containsKey(playerId)) {
+                return false;
+            }
+            final Neighbour neighbour = movedTo.get(playerId);
+            if (neighbour != null) {
+                neighbour.credits.merge(playerId, credit.getValue(), Double::sum);
+            }
+            return true;
+        });
+    }
+
+    private List<Player> handOff(final List<Player> survivors, final Map<String, WorldReplicator.AppliedInput> appliedInputs) {
+        final List<Player> kept = new ArrayList<>(survivors.size());
+        for (final Player player : survivors) {
+            final Neighbour neighbour = player.getX() < minX ? left : player.getX() >= maxX ? right : null;
+            if (neighbour == null || neighbour.link == null) {
+                kept.add(player);
+            } else {
+                final PlayerInputs.Input input = inputOf(player.getId());
+                final WorldReplicator.AppliedInput applied = appliedInputs.remove(player.getId());
+                final int ticks = applied != null && applied.sequence() == input.sequence() ? applied.ticks() : 0;
+                final ShardMessages.HandOff handOff = new ShardMessages.HandOff(++neighbour.lastHandOff, player,
+                        input.dirX(), input.dirY(), input.sequence(), ticks);
+                neighbour.pending.add(new PendingHandOff(handOff, inputs.get(player.getId())));
+                inTransit.put(player.getId(), player);
+            }
+        }
+        return kept;
+    }
+
+    private void refillFood() {
+        foodBudget = Math.min(foodBudget + FoodSpawner.Settings.DEFAULT_SPAWNS_PER_TICK, maxFood);
+        while (foodBudget >= 1 && foods.size() < maxFood) {
+            spawnFood();
+            foodBudget--;
+        }
+    }
+
+    private void spawnFood() {
+        final String foodId = "f" + ((long) nextFood++ * shards + index + 1);
+        foods.add(new Food(foodId, minX + random.nextDouble() * (maxX - minX), random.nextDouble() * worldHeight, Food.DEFAULT_MASS));
+    }
+
+    private void sendBorder(final Neighbour neighbour, final double border) {
+        if (neighbour.shard < 0) {
+            return;
+        }
+        final ShardInterface link = neighbour.link;
+        if (link == null) {
+            // Credits and hand-offs wait for the neighbour to be found again
+            relink(neighbour);
+            return;
+        }
+        double maxRadius = Math.sqrt(Food.DEFAULT_MASS / Math.PI);
+        final List<Player> ghosts = new ArrayList<>();
+        for (final Player player : players) {
+            maxRadius = Math.max(maxRadius, player.getRadius());
+            if (Math.abs(player.getX() - border) <= player.getRadius() + neighbour.maxRadius + GHOST_LAG_MARGIN) {
+                ghosts.add(player);
+            }
+        }
+        final List<Food> ghostFoods = foods.stream().filter(food -> Math.abs(food.getX() - border) <= GHOST_FOOD_MARGIN).toList();
+        final ShardMessages.BorderUpdate update = new ShardMessages.BorderUpdate(index, ticks, maxRadius, ghosts, ghostFoods,
+                Map.copyOf(neighbour.credits), neighbour.pending.stream().map(PendingHandOff::handOff).toList(), neighbour.adoptedHandOff);
+        neighbour.credits.clear();
+        neighbour.sender.execute(() -> deliver(neighbour, link, update));
+    }
+
+    private void deliver(final Neighbour neighbour, final ShardInterface link, final ShardMessages.BorderUpdate update) {
+        try {
+            link.receiveBorder(update);
+        } catch (RemoteException e) {
+            // The neighbour may have adopted the players anyway, so they stay pending until it acknowledges them
+            System.err.println("Shard " + index + " lost its " + neighbour.side + " neighbour: " + e.getMessage());
+            if (neighbour.link == link) {
+                neighbour.link = null;
+            }
+        }
+    }
+
+    // Forwards the player to the neighbour from now on, once it has acknowledged the hand-off
+    private void handedOver(final Neighbour neighbour, final PendingHandOff pending) {
+        final ShardMessages.HandOff handOff = pending.handOff();
+        final Player player = handOff.player();
+        // A player that came back since has a new slot and stays here
+        if (pending.slot() == null || inputs.remove(player.getId(), pending.slot())) {
+            movedTo.put(player.getId(), neighbour);
+            replicator.forget(player.getId());
+            forwardInput(neighbour, player.getId(), handOff, PlayerInputs.of(pending.slot()));
+        }
+        inTransit.remove(player.getId(), player);
+    }
+
+    // The new owner moves the player by the input of the hand-off, newer ones sent here until now are passed on
+    private void forwardInput(final Neighbour neighbour, final String playerId, final ShardMessages.HandOff handOff,
+                              final PlayerInputs.Input latest) {
+        final ShardInterface link = neighbour.link;
+        if (link == null || latest.equals(new PlayerInputs.Input(handOff.dirX(), handOff.dirY(), handOff.inputSequence()))) {
+            return;
+        }
+        final Messages.ClientInput input = new Messages.ClientInput(playerId, latest.dirX(), latest.dirY(), latest.sequence(),
+                WorldReplicator.NO_VERSION);
+        neighbour.sender.execute(() -> {
+            try {
+                link.exchange(input);
+            } catch (RemoteException e) {
+                // The next input of the client is forwarded anyway
+            }
+        });
+    }
+
+    // Looks the neighbour up on its sender thread, so that a slow registry does not hold up the tick
+    private void relink(final Neighbour neighbour) {
+        final long now = System.nanoTime();
+        if (lookup == null || neighbour.lookingUp || now < neighbour.nextLookup) {
+            return;
+        }
+        final IntFunction<ShardInterface> shardLookup = lookup;
+        neighbour.lookingUp = true;
+        neighbour.nextLookup = now + LOOKUP_RETRY_NANOS;
+        neighbour.sender.execute(() -> {
+            final ShardInterface found = shardLookup.apply(neighbour.shard);
+            if (found != null) {
+                neighbour.link = found;
+                System.out.println("Shard " + index + " linked to its " + neighbour.side + " neighbour " + NAME_PREFIX + neighbour.shard);
+            }
+            neighbour.lookingUp = false;
+        });
+    }
+
+    public int getOwnedPlayers() {
+        return inputs.size();
+    }
+
+    public boolean owns(final String playerId) {
+        return inputs.containsKey(playerId);
+    }
+
+    public synchronized double getMassCreditedOut() {
+        return massCreditedOut;
+    }
+
+    public synchronized double getMassCreditedIn() {
+        return massCreditedIn;
+    }
+
+    public World getPublishedWorld() {
+        return published;
+    }
+
+    public void shutdown() {
+        left.sender.shutdown();
+        right.sender.shutdown();
+    }
+
+    private final class Neighbour {
+        private final String side;
+        // Index of the neighbouring strip, -1 at the edges of the world
+        private final int shard;
+        private final ExecutorService sender;
+        private final Map<String, Double> credits = new HashMap<>();
+        // Hand-offs sent and not yet acknowledged, with the input slot the player had here
+        private final List<PendingHandOff> pending = new ArrayList<>();
+        private long lastHandOff = 0;
+        private volatile long adoptedHandOff = 0;
+        private volatile ShardInterface link;
+        private volatile boolean lookingUp = false;
+        private long nextLookup = 0;
+        private long ghostTick = -1;
+        private List<Player> ghosts = List.of();
+        private List<Food> ghostFoods = List.of();
+        private double maxRadius = 0;
+
+        private Neighbour(final String side, final int shard) {
+            this.side = side;
+            this.shard = shard;
+            // One thread per side keeps the updates to a neighbour in tick order
+            this.sender = Executors.newSingleThreadExecutor(task -> {
+                final Thread thread = new Thread(task, NAME_PREFIX + index + "-" + side);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private record PendingHandOff(ShardMessages.HandOff handOff, AtomicReference<PlayerInputs.Input> slot) {}
+}
@@ -0,0 +1,70 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last worlds received from the server with the time they arrived. Rendering a little in the past lets
+ * the other players be drawn between two known states instead of jumping at every update.
+ */
+public class SnapshotBuffer {
+
+    private static final int CAPACITY = 8;
+
+    private final long[] times = new long[CAPACITY];
+    private final World[] worlds = new World[CAPACITY];
+    private int count = 0;
+    private int newest = -1;
+
+    public synchronized void add(final long timeNanos, final World world) {
+        newest = (newest + 1) % CAPACITY;
+        times[newest] = timeNanos;
+        worlds[newest] = world;
+        count = Math.min(count + 1, CAPACITY);
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * World at the given time, with the players interpolated between the snapshots around it.
+     * Times before the oldest snapshot or after the newest one give that snapshot, nothing is extrapolated.
+     */
+    public synchronized World interpolate(final long timeNanos) {
+        if (count == 0) {
+            throw new IllegalStateException("No snapshot received yet");
+        }
+        int after = newest;
+        for (int k = 1; k < count && times[after] > timeNanos; k++) {
+            final int before = (newest - k + CAPACITY) % CAPACITY;
+            if (times[before] <= timeNanos) {
+                final double alpha = (timeNanos - times[before]) / (double) (times[after] - times[before]);
+                return blend(worlds[before], worlds[after], alpha);
+            }
+            after = before;
+        }
+        return worlds[after];
+    }
+
+    private static World blend(final World from, final World to, final double alpha) {
+        if (alpha >= 1 || from == to) {
+            return to;
+        }
+        final Map<String, Player> previous = new HashMap<>();
+        from.getPlayers().forEach(p -> previous.put(p.getId(), p));
+        final List<Player> players = new ArrayList<>(to.getPlayers().size());
+        for (final Player player : to.getPlayers()) {
+            final Player old = previous.get(player.getId());
+            if (old == null || (old.getX() == player.getX() && old.getY() == player.getY())) {
+                players.add(player);
+            } else {
+                players.add(player.moveTo(old.getX() + (player.getX() - old.getX()) * alpha,
+                        old.getY() + (player.getY() - old.getY()) * alpha));
+            }
+        }
+        return new World(to.getWidth(), to.getHeight(), players, to.getFoods());
+    }
+}
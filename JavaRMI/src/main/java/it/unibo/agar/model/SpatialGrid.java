@@ -0,0 +1,200 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform grid over the entities of a world, stored as flat arrays of entity indices bucketed by cell.
+ */
+public class SpatialGrid<E extends Entity> {
+
+    private static final double MIN_CELL_SIZE = 32.0;
+
+    private final List<E> entities;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellEntries;
+    private final double maxRadius;
+
+    public SpatialGrid(final List<E> entities, final int width, final int height) {
+        this.entities = entities;
+        double largest = 0;
+        for (final E entity : entities) {
+            largest = Math.max(largest, entity.getRadius());
+        }
+        this.maxRadius = largest;
+        this.cellSize = Math.max(MIN_CELL_SIZE, 2 * largest);
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+        final int size = entities.size();
+        final int[] cellOf = new int[size];
+        this.cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < size; i++) {
+            final E entity = entities.get(i);
+            cellOf[i] = cellIndex(column(entity.getX()), row(entity.getY()));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        final int[] fill = new int[columns * rows];
+        this.cellEntries = new int[size];
+        for (int i = 0; i < size; i++) {
+            final int cell = cellOf[i];
+            cellEntries[cellStart[cell] + fill[cell]++] = i;
+        }
+    }
+
+    public List<E> getEntities() {
+        return entities;
+    }
+
+    public double getMaxRadius() {
+        return maxRadius;
+    }
+
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    /**
+     * Number of entities in the cells from {@code fromCell} (inclusive) to {@code toCell} (exclusive),
+     * cells being numbered row by row.
+     */
+    public int countInCells(final int fromCell, final int toCell) {
+        return cellStart[toCell] - cellStart[fromCell];
+    }
+
+    /**
+     * Calls the action with the index of every entity in the cells from {@code fromCell} to {@code toCell}.
+     */
+    public void forEachInCells(final int fromCell, final int toCell, final IntConsumer action) {
+        for (int k = cellStart[fromCell]; k < cellStart[toCell]; k++) {
+            action.accept(cellEntries[k]);
+        }
+    }
+
+    /**
+     * Calls the action with the index of every entity whose centre may lie within range of (x, y).
+     * Candidates are only filtered by cell, callers apply the exact test.
+     */
+    public void forEachCandidate(final double x, final double y, final double range, final IntConsumer action) {
+        final int minColumn = column(x - range);
+        final int maxColumn = column(x + range);
+        final int minRow = row(y - range);
+        final int maxRow = row(y + range);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minColumn; c <= maxColumn; c++) {
+                final int cell = cellIndex(c, r);
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    action.accept(cellEntries[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns, in list order, the entities whose body overlaps the disc of the given radius around (x, y).
+     */
+    public List<E> overlapping(final double x, final double y, final double radius) {
+        final Candidates candidates = new Candidates();
+        forEachCandidate(x, y, radius + maxRadius, candidates);
+        candidates.sort();
+        final List<E> result = new ArrayList<>(candidates.size);
+        for (int k = 0; k < candidates.size; k++) {
+            final E entity = entities.get(candidates.items[k]);
+            if (Math.hypot(entity.getX() - x, entity.getY() - y) < radius + entity.getRadius()) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The entity whose centre is closest to (x, y), the first in list order among equally close ones.
+     * Cells are searched in rings of growing size around the cell of the point, stopping once no entity
+     * outside the rings searched can be closer than the best found.
+     */
+    public Optional<E> nearest(final double x, final double y) {
+        if (entities.isEmpty()) {
+            return Optional.empty();
+        }
+        final int column = column(x);
+        final int row = row(y);
+        final int maxRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Whole rows at the top and bottom of the ring, only its two ends on the rows in between
+                final int step = r == row - ring || r == row + ring ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    final int cell = cellIndex(c, r);
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        final int index = cellEntries[k];
+                        final E entity = entities.get(index);
+                        final double distance = Math.hypot(entity.getX() - x, entity.getY() - y);
+                        if (distance < bestDistance || (distance == bestDistance && index < best)) {
+                            best = index;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            // The cells beyond this ring are at least ring cells away from the point
+            if (bestDistance < ring * cellSize) {
+                break;
+            }
+        }
+        return Optional.of(entities.get(best));
+    }
+
+    private int column(final double x) {
+        return clamp((int) Math.floor(x / cellSize), columns);
+    }
+
+    private int row(final double y) {
+        return clamp((int) Math.floor(y / cellSize), rows);
+    }
+
+    private int cellIndex(final int column, final int row) {
+        return row * columns + column;
+    }
+
+    private static int clamp(final int value, final int bound) {
+        return Math.min(Math.max(value, 0), bound - 1);
+    }
+
+    static final class Candidates implements IntConsumer {
+        int[] items = new int[16];
+        int size;
+
+        @Override
+        public void accept(final int index) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = index;
+        }
+
+        void sort() {
+            Arrays.sort(items, 0, size);
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
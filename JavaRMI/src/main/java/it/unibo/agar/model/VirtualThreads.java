@@ -0,0 +1,36 @@
+package it.unibo.agar.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor starting a virtual thread per task when the runtime has them (Java 21), and a daemon
+ * platform thread per task otherwise, so the project still builds and runs on Java 17.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() { }
+
+    public static boolean available() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public static ExecutorService newPerTaskExecutor(final String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger threads = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                final Thread thread = new Thread(task, name + "-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package it.unibo.agar.model;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class World implements Serializable {
@@ -10,6 +14,9 @@ public class World implements Serializable {
     private final int height;
     private final List<Player> players;
     private final List<Food> foods;
+    private transient volatile SpatialGrid<Player> playerGrid;
+    private transient volatile SpatialGrid<Food> foodGrid;
+    private transient volatile Map<String, Player> playersById;
 
     public World(int width, int height, List<Player> players, List<Food> foods) {
         this.width = width;
@@ -34,30 +41,69 @@ public class World implements Serializable {
         return foods;
     }
 
-    public synchronized List<Player> getPlayersExcludingSelf(final Player player) {
+    public SpatialGrid<Player> getPlayerGrid() {
+        SpatialGrid<Player> grid = playerGrid;
+        if (grid == null) {
+            grid = new SpatialGrid<>(players, width, height);
+            playerGrid = grid;
+        }
+        return grid;
+    }
+
+    public SpatialGrid<Food> getFoodGrid() {
+        SpatialGrid<Food> grid = foodGrid;
+        if (grid == null) {
+            grid = new SpatialGrid<>(foods, width, height);
+            foodGrid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * The part of this world a player centred in (x, y) can see within the given radius.
+     */
+    public World visibleFrom(final double x, final double y, final double radius) {
+        return new World(width, height, getPlayerGrid().overlapping(x, y, radius), getFoodGrid().overlapping(x, y, radius));
+    }
+
+    public List<Player> getPlayersExcludingSelf(final Player player) {
         return players.stream()
                 .filter(p -> !p.getId().equals(player.getId()))
                 .collect(Collectors.toList());
     }
 
-    public synchronized Optional<Player> getPlayerById(final String id) {
-        return players.stream()
-                .filter(p -> p.getId().equals(id))
-                .findFirst();
+    public Optional<Player> getPlayerById(final String id) {
+        Map<String, Player> index = playersById;
+        if (index == null) {
+            index = new HashMap<>(players.size() * 2);
+            for (final Player player : players) {
+                index.putIfAbsent(player.getId(), player);
+            }
+            playersById = index;
+        }
+        return Optional.ofNullable(index.get(id));
     }
 
-
-    public synchronized World removePlayers(final List<Player> playersToRemove) {
-        List<String> idsToRemove = playersToRemove.stream().map(Player::getId).toList();
+    public World removePlayers(final List<Player> playersToRemove) {
+        if (playersToRemove.isEmpty()) {
+            return this;
+        }
+        final Set<String> idsToRemove = new HashSet<>(playersToRemove.size() * 2);
+        playersToRemove.forEach(p -> idsToRemove.add(p.getId()));
         List<Player> newPlayers = players.stream()
                 .filter(p -> !idsToRemove.contains(p.getId()))
                 .collect(Collectors.toList());
         return new World(width, height, newPlayers, foods);
     }
 
-    public synchronized World removeFoods(List<Food> foodsToRemove) {
+    public World removeFoods(List<Food> foodsToRemove) {
+        if (foodsToRemove.isEmpty()) {
+            return this;
+        }
+        final Set<String> idsToRemove = new HashSet<>(foodsToRemove.size() * 2);
+        foodsToRemove.forEach(f -> idsToRemove.add(f.getId()));
         List<Food> newFoods = foods.stream()
-                .filter(f -> !foodsToRemove.contains(f))
+                .filter(f -> !idsToRemove.contains(f.getId()))
                 .collect(Collectors.toList());
         return new World(width, height, players, newFoods);
     }
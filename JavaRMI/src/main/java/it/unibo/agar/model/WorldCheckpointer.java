@@ -0,0 +1,150 @@
+package it.unibo.agar.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Saves the world of a game every given number of ticks, so that a server restarted after a crash can go on
+ * with the same match. The tick only hands over the world, which is immutable; encoding and writing happen
+ * on a background thread. When the disk is slower than the checkpoints, the ones not yet started are
+ * skipped in favour of the latest. The file is replaced atomically, so it always holds a whole checkpoint.
+ */
+public class WorldCheckpointer {
+
+    private static final int MAGIC = 0x41474331; // "AGC1"
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + 3 * Integer.BYTES;
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    /**
+     * @param playerCounter players registered in the game up to the checkpoint, to number the next ones
+     */
+    public record Checkpoint(long tick, int playerCounter, World world) {}
+
+    private final Path file;
+    private final Path temporary;
+    private final int interval;
+    private final AtomicReference<Checkpoint> pending = new AtomicReference<>();
+    // Only used by the writer thread
+    private final BinaryCodec codec = new BinaryCodec(true);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = new Thread(task, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long ticks = 0;
+    private volatile long lastWrittenTick = -1;
+
+    /**
+     * @param interval ticks between two checkpoints
+     */
+    public WorldCheckpointer(final Path file, final int interval, final long startTick) {
+        this.file = file;
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        this.interval = Math.max(1, interval);
+        this.ticks = startTick;
+    }
+
+    /**
+     * Called after every tick with the world it published.
+     */
+    public void tick(final World world, final int playerCounter) {
+        if (++ticks % interval == 0 && pending.getAndSet(new Checkpoint(ticks, playerCounter, world)) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        final Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            write(checkpoint);
+            lastWrittenTick = checkpoint.tick();
+        } catch (IOException e) {
+            System.err.println("Could not write the checkpoint of tick " + checkpoint.tick() + ": " + e.getMessage());
+        }
+    }
+
+    private void write(final Checkpoint checkpoint) throws IOException {
+        final ByteBuffer body = codec.encode(checkpoint.world());
+        final CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC).putLong(checkpoint.tick()).putInt(checkpoint.playerCounter())
+                .putInt(body.remaining()).putInt((int) crc.getValue())
+                .flip();
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The checkpoint saved in the file, empty when there is none.
+     */
+    public static Optional<Checkpoint> read(final Path file) throws IOException {
+        final ByteBuffer input;
+        try {
+            input = ByteBuffer.wrap(Files.readAllBytes(file));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        if (input.remaining() < HEADER_SIZE || input.getInt() != MAGIC) {
+            throw new IOException(file + " is not a checkpoint");
+        }
+        final long tick = input.getLong();
+        final int playerCounter = input.getInt();
+        final int length = input.getInt();
+        final int expectedCrc = input.getInt();
+        if (input.remaining() != length) {
+            throw new IOException("Checkpoint " + file + " is truncated");
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(input.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Checkpoint " + file + " is corrupted");
+        }
+        return Optional.of(new Checkpoint(tick, playerCounter, (World) new BinaryCodec(true).decode(input)));
+    }
+
+    public long getLastWrittenTick() {
+        return lastWrittenTick;
+    }
+
+    /**
+     * Stops checkpointing once the write in progress ends; with {@code discard}, also deletes the file,
+     * as for a match that is over.
+     */
+    public void close(final boolean discard) {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (discard) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Could not delete the checkpoint " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
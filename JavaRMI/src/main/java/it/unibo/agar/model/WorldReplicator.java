@@ -0,0 +1,171 @@
+package it.unibo.agar.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a short history of published worlds and answers clients with the changes since the version they hold,
+ * either of the whole world or of the area of interest around their player.
+ */
+public class WorldReplicator {
+
+    public static final long NO_VERSION = -1;
+    private static final int HISTORY_SIZE = 64;
+
+    private final World[] history = new World[HISTORY_SIZE];
+    private final List<Map<String, AppliedInput>> inputHistory = new ArrayList<>(Collections.nCopies(HISTORY_SIZE, Map.of()));
+    private final Map<Long, Messages.WorldDelta> cachedDeltas = new HashMap<>();
+    private final Map<String, ClientView> clientViews = new ConcurrentHashMap<>();
+    private long version = NO_VERSION;
+
+    public long publish(final World world) {
+        return publish(world, Map.of());
+    }
+
+    /**
+     * Publishes a world together with the last input of each client applied to it.
+     */
+    public synchronized long publish(final World world, final Map<String, AppliedInput> appliedInputs) {
+        version++;
+        history[(int) (version % HISTORY_SIZE)] = world;
+        inputHistory.set((int) (version % HISTORY_SIZE), appliedInputs);
+        cachedDeltas.clear();
+        return version;
+    }
+
+    /**
+     * Last input of the client applied in a version still in the history, {@link AppliedInput#NONE} if there is none.
+     */
+    public synchronized AppliedInput appliedInput(final String clientId, final long atVersion) {
+        if (atVersion <= NO_VERSION || atVersion > version || version - atVersion >= HISTORY_SIZE) {
+            return AppliedInput.NONE;
+        }
+        return inputHistory.get((int) (atVersion % HISTORY_SIZE)).getOrDefault(clientId, AppliedInput.NONE);
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized Messages.WorldDelta deltaSince(final long baseVersion) {
+        final boolean known = baseVersion > NO_VERSION && baseVersion <= version && version - baseVersion < HISTORY_SIZE;
+        final long base = known ? baseVersion : NO_VERSION;
+        return cachedDeltas.computeIfAbsent(base, b -> diff(b, version, b == NO_VERSION ? null : worldAt(b), worldAt(version)));
+    }
+
+    /**
+     * Changes of the area of interest of a client since the view it last received, computed outside the lock
+     * against the view remembered for that client.
+     */
+    public Messages.WorldDelta deltaFor(final String clientId, final long baseVersion, final InterestArea area) {
+        final long currentVersion;
+        final World current;
+        synchronized (this) {
+            currentVersion = version;
+            current = worldAt(version);
+        }
+        final World view = area.isEmpty() ? new World(current.getWidth(), current.getHeight(), List.of(), List.of())
+                : current.visibleFrom(area.x(), area.y(), area.radius());
+        final ClientView previous = clientViews.put(clientId, new ClientView(currentVersion, view));
+        if (previous != null && previous.version() == baseVersion && baseVersion != NO_VERSION) {
+            return diff(baseVersion, currentVersion, previous.world(), view);
+        }
+        return diff(NO_VERSION, currentVersion, null, view);
+    }
+
+    public void forget(final String clientId) {
+        clientViews.remove(clientId);
+    }
+
+    private World worldAt(final long v) {
+        return history[(int) (v % HISTORY_SIZE)];
+    }
+
+    private static Messages.WorldDelta diff(final long baseVersion, final long version, final World from, final World to) {
+        if (from == null) {
+            return new Messages.WorldDelta(NO_VERSION, version, to.getWidth(), to.getHeight(),
+                    to.getPlayers(), List.of(), to.getFoods(), List.of());
+        }
+        final Map<String, Player> oldPlayers = new HashMap<>();
+        from.getPlayers().forEach(p -> oldPlayers.put(p.getId(), p));
+        final List<Player> changedPlayers = new ArrayList<>();
+        for (final Player player : to.getPlayers()) {
+            final Player old = oldPlayers.remove(player.getId());
+            if (old == null || old.getX() != player.getX() || old.getY() != player.getY() || old.getMass() != player.getMass()) {
+                changedPlayers.add(player);
+            }
+        }
+
+        final Map<String, Food> oldFoods = new HashMap<>();
+        from.getFoods().forEach(f -> oldFoods.put(f.getId(), f));
+        final List<Food> addedFoods = new ArrayList<>();
+        final List<String> removedFoods = new ArrayList<>();
+        for (final Food food : to.getFoods()) {
+            final Food old = oldFoods.remove(food.getId());
+            if (old == null) {
+                addedFoods.add(food);
+            } else if (old.getX() != food.getX() || old.getY() != food.getY() || old.getMass() != food.getMass()) {
+                // The id of an eaten food was reused by a new one, removals are applied first
+                removedFoods.add(food.getId());
+                addedFoods.add(food);
+            }
+        }
+        removedFoods.addAll(oldFoods.keySet());
+
+        return new Messages.WorldDelta(baseVersion, version, to.getWidth(), to.getHeight(),
+                changedPlayers, List.copyOf(oldPlayers.keySet()), addedFoods, removedFoods);
+    }
+
+    /**
+     * Rebuilds the world a delta describes on top of the world the client holds.
+     */
+    public static World apply(final World base, final Messages.WorldDelta delta) {
+        if (delta.isSnapshot()) {
+            return new World(delta.width(), delta.height(), delta.players(), delta.addedFoods());
+        }
+        final Map<String, Player> players = new LinkedHashMap<>();
+        base.getPlayers().forEach(p -> players.put(p.getId(), p));
+        delta.removedPlayers().forEach(players::remove);
+        delta.players().forEach(p -> players.put(p.getId(), p));
+
+        final Map<String, Food> foods = new LinkedHashMap<>();
+        base.getFoods().forEach(f -> foods.put(f.getId(), f));
+        delta.removedFoods().forEach(foods::remove);
+        delta.addedFoods().forEach(f -> foods.put(f.getId(), f));
+
+        return new World(delta.width(), delta.height(), new ArrayList<>(players.values()), new ArrayList<>(foods.values()));
+    }
+
+    /**
+     * Sequence of the last input of a client applied to a world and for how many ticks in a row it was applied,
+     * so that the client drops only the predicted steps the server has already made.
+     */
+    public record AppliedInput(long sequence, int ticks) {
+        public static final AppliedInput NONE = new AppliedInput(0, 0);
+
+        /**
+         * What has been applied once the given input is applied for one more tick.
+         */
+        AppliedInput then(final long nextSequence) {
+            return nextSequence == sequence ? new AppliedInput(sequence, ticks + 1) : new AppliedInput(nextSequence, 1);
+        }
+    }
+
+    /**
+     * Disc of the world a client is interested in; an empty area means the client has no player to look from.
+     */
+    public record InterestArea(double x, double y, double radius) {
+        public static final InterestArea EMPTY = new InterestArea(0, 0, -1);
+
+        public boolean isEmpty() {
+            return radius < 0;
+        }
+    }
+
+    private record ClientView(long version, World world) {}
+}
@@ -0,0 +1,88 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the array engine and the server engine side by side from the same seeded world and inputs, with players
+ * joining and leaving. Food is not spawned again, since only the server engine refills it.
+ */
+class ArrayGameStateManagerTest {
+
+    private static final double CHURN_PER_TICK = 0.05;
+
+    @Test
+    void reachesTheSameWorldAsTheServerEngine() {
+        for (final long seed : new long[] {1, 42}) {
+            compare(seed, 500, 2000, 3000, 1000);
+        }
+    }
+
+    @Test
+    void reachesTheSameWorldInACrowd() {
+        compare(7, 300, 500, 750, 300);
+    }
+
+    private static void compare(final long seed, final int players, final int foods, final int size, final int ticks) {
+        final Random random = new Random(seed);
+        final World initialWorld = new World(size, size,
+                GameInitializer.initialPlayers(players, size, size, Player.INITIAL_MASS, random),
+                GameInitializer.initialFoods(foods, size, size, Food.DEFAULT_MASS, random));
+        final ServerGameStateManager reference = new ServerGameStateManager(initialWorld, null,
+                new FoodSpawner(FoodSpawner.Settings.defaults(0), new Random(seed)));
+        final ArrayGameStateManager array = new ArrayGameStateManager(initialWorld);
+
+        int joined = players;
+        int eaten = 0;
+        for (int tick = 1; tick <= ticks; tick++) {
+            for (final Player player : reference.getWorld().getPlayers()) {
+                final double dx = random.nextDouble() * 2 - 1;
+                final double dy = random.nextDouble() * 2 - 1;
+                reference.setPlayerDirection(player.getId(), dx, dy);
+                array.setPlayerDirection(player.getId(), dx, dy);
+            }
+            if (random.nextDouble() < CHURN_PER_TICK) {
+                final Player player = new Player("p" + ++joined, random.nextInt(size), random.nextInt(size), Player.INITIAL_MASS);
+                reference.addPlayer(player);
+                array.addPlayer(player);
+            }
+            final List<Player> current = reference.getWorld().getPlayers();
+            if (!current.isEmpty() && random.nextDouble() < CHURN_PER_TICK) {
+                final String leaving = current.get(random.nextInt(current.size())).getId();
+                reference.removePlayer(leaving);
+                array.removePlayer(leaving);
+            }
+
+            reference.tick();
+            eaten += reference.getPlayersToRemove().size();
+            array.tick();
+
+            assertSameEntities("seed " + seed + ", tick " + tick, reference.getWorld().getPlayers(), array.getWorld().getPlayers());
+            assertSameEntities("seed " + seed + ", tick " + tick, reference.getWorld().getFoods(), array.getWorld().getFoods());
+        }
+        assertTrue(eaten > 0, "no player was eaten, the comparison does not cover eating between players");
+    }
+
+    // The engines keep entities in different orders, so they are matched by id
+    private static void assertSameEntities(final String when, final List<? extends Entity> expected,
+                                           final List<? extends Entity> actual) {
+        final Map<String, Entity> byId = new HashMap<>();
+        actual.forEach(entity -> byId.put(entity.getId(), entity));
+        assertEquals(expected.size(), byId.size(), when);
+        for (final Entity entity : expected) {
+            final Entity other = byId.get(entity.getId());
+            assertNotNull(other, when + ": " + entity.getId() + " missing from the array engine");
+            assertEquals(entity.getX(), other.getX(), when + ": x of " + entity.getId());
+            assertEquals(entity.getY(), other.getY(), when + ": y of " + entity.getId());
+            assertEquals(entity.getMass(), other.getMass(), when + ": mass of " + entity.getId());
+        }
+    }
+}
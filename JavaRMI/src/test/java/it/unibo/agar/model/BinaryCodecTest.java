@@ -0,0 +1,110 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryCodecTest {
+
+    private static final long[] UNSIGNED = {0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, 1L << 56, Long.MAX_VALUE};
+    private static final long[] SIGNED = {0, -1, 1, -64, 64, -65, Integer.MIN_VALUE, Long.MIN_VALUE, Long.MAX_VALUE};
+
+    private final BinaryCodec codec = new BinaryCodec(true);
+
+    @Test
+    void varintsRoundTripAcrossTheirByteBoundaries() {
+        for (final long sequence : UNSIGNED) {
+            final Messages.ClientInput input = new Messages.ClientInput("p1", 0.5, -0.25, sequence, 0);
+            assertEquals(input, roundTrip(input));
+        }
+    }
+
+    @Test
+    void zigzagRoundTripsNegativeAndExtremeValues() {
+        for (final long version : SIGNED) {
+            final Messages.ClientInput input = new Messages.ClientInput("p1", 0, 0, 1, version);
+            assertEquals(input, roundTrip(input));
+        }
+    }
+
+    @Test
+    void smallMagnitudesTakeFewBytes() {
+        final int base = codec.toBytes(new Messages.ClientInput("p1", 0, 0, 0, 0)).length;
+        assertEquals(base, codec.toBytes(new Messages.ClientInput("p1", 0, 0, 127, -64)).length);
+        assertEquals(base + 2, codec.toBytes(new Messages.ClientInput("p1", 0, 0, 128, -65)).length);
+    }
+
+    @Test
+    void tickReplyKeepsTheAppliedInput() {
+        final Messages.TickReply reply = new Messages.TickReply(true, null, 300, 129);
+        assertEquals(reply, roundTrip(reply));
+    }
+
+    @Test
+    void idsRoundTripWhetherInternedOrNot() {
+        for (final String id : List.of("p1", "f0", "p1048575", "p1048576", "p01", "p", "bot-3", "p12345678901", "\u00e97")) {
+            assertEquals(new Messages.GameOver(id), roundTrip(new Messages.GameOver(id)));
+        }
+    }
+
+    @Test
+    void internedIdsAreSharedAcrossDecodes() {
+        final BinaryCodec decoder = new BinaryCodec(true);
+        final String first = ((Messages.GameOver) decoder.decode(codec.toBytes(new Messages.GameOver("p42")))).playerId();
+        final String second = ((Messages.GameOver) decoder.decode(codec.toBytes(new Messages.GameOver("p42")))).playerId();
+        assertSame(first, second);
+        final String large = ((Messages.GameOver) decoder.decode(codec.toBytes(new Messages.GameOver("p1048576")))).playerId();
+        assertNotSame(large, ((Messages.GameOver) decoder.decode(codec.toBytes(new Messages.GameOver("p1048576")))).playerId());
+    }
+
+    @Test
+    void worldRoundTripsExactly() {
+        final World world = new World(1000, 800,
+                List.of(new Player("p1", 10.125, 20.5, 120), new Player("bot-1", 999.9, 0.1, 3000.75)),
+                List.of(new Food("f1", 1.0 / 3, 2.0 / 3, Food.DEFAULT_MASS)));
+        final World decoded = (World) roundTrip(world);
+        assertEquals(world.getWidth(), decoded.getWidth());
+        assertEquals(world.getHeight(), decoded.getHeight());
+        assertSameEntities(world.getPlayers(), decoded.getPlayers(), 0);
+        assertSameEntities(world.getFoods(), decoded.getFoods(), 0);
+    }
+
+    @Test
+    void quantizedCoordinatesStayWithinTheQuantum() {
+        final BinaryCodec quantized = new BinaryCodec(false);
+        final World world = new World(1000, 800, List.of(new Player("p1", 10.1234, 799.99, 120.01)), List.of());
+        final World decoded = (World) quantized.decode(quantized.toBytes(world));
+        assertSameEntities(world.getPlayers(), decoded.getPlayers(), 1.0 / 16);
+    }
+
+    @Test
+    void malformedInputIsRejected() {
+        final byte[] bytes = codec.toBytes(new Messages.GameOver("p1"));
+        bytes[0] = BinaryCodec.FORMAT_VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bytes));
+        final ByteBuffer hugeList = ByteBuffer.wrap(new byte[] {BinaryCodec.FORMAT_VERSION, 1, 1,
+                (byte) 0x80, (byte) 0x08, (byte) 0x80, (byte) 0x08, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F});
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(hugeList));
+    }
+
+    private Object roundTrip(final Object message) {
+        return new BinaryCodec(true).decode(codec.toBytes(message));
+    }
+
+    private static void assertSameEntities(final List<? extends Entity> expected, final List<? extends Entity> actual,
+                                           final double tolerance) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getX(), actual.get(i).getX(), tolerance);
+            assertEquals(expected.get(i).getY(), actual.get(i).getY(), tolerance);
+            assertEquals(expected.get(i).getMass(), actual.get(i).getMass(), tolerance);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EatingManagerTest {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 800;
+
+    @Test
+    void gridPassMatchesBruteForce() {
+        for (long seed = 0; seed < 20; seed++) {
+            final World world = crowdedWorld(new Random(seed), 200, 1000);
+            assertSameOutcome(bruteForce(world), EatingManager.resolve(world));
+        }
+    }
+
+    @Test
+    void pooledPassMatchesSequential() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long seed = 0; seed < 20; seed++) {
+                final World world = crowdedWorld(new Random(seed), 2_000, 5_000);
+                assertSameOutcome(EatingManager.resolve(world), EatingManager.resolve(world, pool));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void bigPlayersReachBeyondTheirCell() {
+        final Player giant = new Player("p1", 500, 400, 200_000);
+        final Player far = new Player("p2", 500 + giant.getRadius() * 0.9, 400, Player.INITIAL_MASS);
+        final Food food = new Food("f1", 500, 400 - giant.getRadius() * 0.9, Food.DEFAULT_MASS);
+        final World world = new World(WIDTH, HEIGHT, List.of(giant, far), List.of(food));
+        final EatingManager.EatingResult result = EatingManager.resolve(world);
+        assertSameOutcome(bruteForce(world), result);
+        assertEquals(List.of(far), result.eatenPlayers());
+        assertEquals(List.of(food), result.eatenFoods());
+    }
+
+    @Test
+    void removalsAreJudgedOnTheSizesAtTheStartOfTheTick() {
+        // Only after its meal is the first one big enough to eat the second
+        final Player eater = new Player("p1", 100, 100, 130);
+        final Player other = new Player("p2", 105, 100, 125);
+        final Food food = new Food("f1", 100, 102, Food.DEFAULT_MASS);
+        final EatingManager.EatingResult result = EatingManager.resolve(new World(WIDTH, HEIGHT, List.of(eater, other), List.of(food)));
+        assertFalse(result.eatenPlayers().contains(other));
+        assertEquals(130 + Food.DEFAULT_MASS + 125, result.players().get(0).getMass());
+    }
+
+    static World crowdedWorld(final Random random, final int players, final int foods) {
+        final List<Player> playerList = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            final double mass = random.nextInt(10) == 0 ? 2_000 + random.nextDouble() * 20_000 : 50 + random.nextDouble() * 300;
+            playerList.add(new Player("p" + i, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, mass));
+        }
+        final List<Food> foodList = new ArrayList<>();
+        for (int i = 0; i < foods; i++) {
+            foodList.add(new Food("f" + i, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, Food.DEFAULT_MASS));
+        }
+        return new World(WIDTH, HEIGHT, playerList, foodList);
+    }
+
+    // Every player against every food and every other player, in the order of the lists
+    static EatingManager.EatingResult bruteForce(final World world) {
+        final List<Player> players = world.getPlayers();
+        final List<Food> foods = world.getFoods();
+        final boolean[] foodEaten = new boolean[foods.size()];
+        final boolean[] playerEaten = new boolean[players.size()];
+        final List<Player> grownPlayers = new ArrayList<>();
+        for (final Player player : players) {
+            Player grown = player;
+            for (int j = 0; j < foods.size(); j++) {
+                if (EatingManager.canEatFood(player, foods.get(j))) {
+                    foodEaten[j] = true;
+                    grown = grown.grow(foods.get(j));
+                }
+            }
+            final Player afterFood = grown;
+            for (int j = 0; j < players.size(); j++) {
+                final Player other = players.get(j);
+                if (other.getId().equals(player.getId())) {
+                    continue;
+                }
+                if (EatingManager.canEatPlayer(afterFood, other)) {
+                    grown = grown.grow(other);
+                }
+                if (EatingManager.canEatPlayer(player, other)) {
+                    playerEaten[j] = true;
+                }
+            }
+            grownPlayers.add(grown);
+        }
+        final List<Food> eatenFoods = new ArrayList<>();
+        for (int j = 0; j < foods.size(); j++) {
+            if (foodEaten[j]) {
+                eatenFoods.add(foods.get(j));
+            }
+        }
+        final List<Player> eatenPlayers = new ArrayList<>();
+        for (int j = 0; j < players.size(); j++) {
+            if (playerEaten[j]) {
+                eatenPlayers.add(players.get(j));
+            }
+        }
+        return new EatingManager.EatingResult(grownPlayers, eatenFoods, eatenPlayers);
+    }
+
+    static void assertSameOutcome(final EatingManager.EatingResult expected, final EatingManager.EatingResult actual) {
+        assertEquals(expected.eatenFoods(), actual.eatenFoods());
+        assertEquals(expected.eatenPlayers(), actual.eatenPlayers());
+        assertEquals(expected.players().size(), actual.players().size());
+        for (int i = 0; i < expected.players().size(); i++) {
+            assertEquals(expected.players().get(i).getId(), actual.players().get(i).getId());
+            assertEquals(expected.players().get(i).getMass(), actual.players().get(i).getMass());
+        }
+    }
+}
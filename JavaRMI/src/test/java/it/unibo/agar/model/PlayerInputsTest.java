@@ -0,0 +1,82 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PlayerInputsTest {
+
+    @Test
+    void directionsAreClampedInLength() {
+        final AtomicReference<PlayerInputs.Input> slot = PlayerInputs.newSlot();
+        PlayerInputs.apply(slot, 30, 40, 1);
+        assertEquals(PlayerInputs.MAX_DIRECTION, Math.hypot(slot.get().dirX(), slot.get().dirY()), 1e-9);
+        assertEquals(0.75, slot.get().dirX() / slot.get().dirY(), 1e-9);
+        PlayerInputs.apply(slot, 0.3, -0.4, 2);
+        assertEquals(new PlayerInputs.Input(0.3, -0.4, 2), slot.get());
+    }
+
+    @Test
+    void olderInputsAreDropped() {
+        final AtomicReference<PlayerInputs.Input> slot = PlayerInputs.newSlot();
+        PlayerInputs.apply(slot, 1, 0, 5);
+        PlayerInputs.apply(slot, -1, 0, 4);
+        assertEquals(new PlayerInputs.Input(1, 0, 5), slot.get());
+        PlayerInputs.apply(slot, 0, 1, 5);
+        assertEquals(new PlayerInputs.Input(0, 1, 5), slot.get());
+    }
+
+    @Test
+    void unnumberedInputsAreAlwaysApplied() {
+        final AtomicReference<PlayerInputs.Input> slot = PlayerInputs.newSlot();
+        PlayerInputs.apply(slot, 1, 0, 9);
+        PlayerInputs.apply(slot, 0, -1, 0);
+        assertEquals(new PlayerInputs.Input(0, -1, 0), slot.get());
+    }
+
+    @Test
+    void nonFiniteInputsAndMissingSlotsAreIgnored() {
+        final AtomicReference<PlayerInputs.Input> slot = PlayerInputs.newSlot();
+        PlayerInputs.apply(slot, Double.NaN, 0, 1);
+        PlayerInputs.apply(slot, 0, Double.POSITIVE_INFINITY, 2);
+        assertSame(PlayerInputs.Input.NONE, slot.get());
+        PlayerInputs.apply(null, 1, 1, 3);
+        assertSame(PlayerInputs.Input.NONE, PlayerInputs.of(null));
+    }
+
+    @Test
+    void concurrentWritersLeaveTheNewestInput() throws InterruptedException {
+        final AtomicReference<PlayerInputs.Input> slot = PlayerInputs.newSlot();
+        final int writers = 4;
+        final int inputsPerWriter = 10_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= inputsPerWriter; i++) {
+                    PlayerInputs.apply(slot, writer, 0, (long) i * writers + writer);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final long newest = (long) inputsPerWriter * writers + writers - 1;
+        assertEquals(new PlayerInputs.Input(Math.min(writers - 1, PlayerInputs.MAX_DIRECTION), 0, newest), slot.get());
+    }
+}
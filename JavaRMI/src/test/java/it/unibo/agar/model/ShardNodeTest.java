@@ -0,0 +1,151 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the shards of a world in one JVM with players joining every shard and steered back and forth across the
+ * nearest border, their inputs always sent to the shard they joined.
+ */
+class ShardNodeTest {
+
+    private static final int SHARDS = 3;
+    private static final int PLAYERS = 60;
+    private static final int TICKS = 1500;
+    private static final int WORLD_WIDTH = 1000;
+    private static final int WORLD_HEIGHT = 1000;
+    private static final int FOOD_PER_SHARD = 150;
+    private static final int SWING_TICKS = 60;
+    private static final int SETTLE_TICKS = 20;
+    private static final long DELIVERY_WAIT_MS = 5;
+
+    private static List<ShardNode> nodes;
+    private static final Map<String, ShardNode> home = new HashMap<>();
+    private static final List<String> ids = new ArrayList<>();
+    private static long sequence = 0;
+    private static int failures = 0;
+    private static double creditedOut;
+    private static double creditedIn;
+
+    @BeforeAll
+    static void swingAcrossTheBorders() throws InterruptedException {
+        nodes = ShardNode.inProcess(SHARDS, WORLD_WIDTH, WORLD_HEIGHT, FOOD_PER_SHARD,
+                DistributedGameStateManager.DEFAULT_INTEREST_RADIUS, 42);
+        for (int i = 0; i < PLAYERS; i++) {
+            final ShardNode node = nodes.get(i % SHARDS);
+            final String playerId = node.registerPlayer().playerId();
+            home.put(playerId, node);
+            ids.add(playerId);
+        }
+        for (int tick = 0; tick < TICKS + SETTLE_TICKS; tick++) {
+            final Map<String, Player> positions = positions(nodes);
+            sequence++;
+            for (final String playerId : ids) {
+                final ShardNode node = home.get(playerId);
+                final Player player = positions.get(playerId);
+                double dirX = 0;
+                if (tick < TICKS && player != null) {
+                    final double swing = (tick / SWING_TICKS) % 2 == 0 ? 40 : -40;
+                    dirX = Math.signum(nearestBorder(node) + swing - player.getX());
+                }
+                try {
+                    node.exchange(new Messages.ClientInput(playerId, dirX, 0, sequence, WorldReplicator.NO_VERSION));
+                } catch (RemoteException e) {
+                    failures++;
+                }
+            }
+            nodes.forEach(ShardNode::tick);
+            Thread.sleep(DELIVERY_WAIT_MS);
+        }
+        // Credits sent in the last tick are counted in by the next one of their receiver
+        creditedOut = nodes.stream().mapToDouble(ShardNode::getMassCreditedOut).sum();
+        Thread.sleep(10 * DELIVERY_WAIT_MS);
+        nodes.forEach(ShardNode::tick);
+        creditedIn = nodes.stream().mapToDouble(ShardNode::getMassCreditedIn).sum();
+    }
+
+    @AfterAll
+    static void shutdown() {
+        nodes.forEach(ShardNode::shutdown);
+    }
+
+    @Test
+    void everyPlayerHasOneOwnerAndIsReachedThroughItsShard() throws RemoteException {
+        assertEquals(0, failures);
+        int handedOver = 0;
+        for (final String playerId : ids) {
+            final List<ShardNode> owners = nodes.stream().filter(node -> node.owns(playerId)).toList();
+            final boolean playing = home.get(playerId).exchange(
+                    new Messages.ClientInput(playerId, 0, 0, ++sequence, WorldReplicator.NO_VERSION)).playing();
+            assertTrue(owners.size() <= 1, playerId + " owned by " + owners.size() + " shards");
+            assertEquals(playing, owners.size() == 1, playerId + (playing ? " playing without an owner" : " owned but out of the game"));
+            if (playing && owners.get(0) != home.get(playerId)) {
+                handedOver++;
+            }
+        }
+        assertTrue(handedOver > 0, "no player was handed over");
+    }
+
+    @Test
+    void massEarnedAcrossBordersIsCredited() {
+        assertTrue(creditedOut > 0, "nothing was eaten across a border");
+        assertEquals(creditedOut, creditedIn, 1e-6 * creditedOut);
+    }
+
+    @Test
+    void inputSentDuringAHandOffReachesTheNewOwner() throws Exception {
+        final List<ShardNode> pair = ShardNode.inProcess(2, WORLD_WIDTH, WORLD_HEIGHT, 0,
+                DistributedGameStateManager.DEFAULT_INTEREST_RADIUS, 1);
+        try {
+            final ShardNode from = pair.get(0);
+            final ShardNode to = pair.get(1);
+            final String playerId = from.registerPlayer().playerId();
+            long inputSequence = 0;
+            for (int tick = 0; tick < 2000 && !to.owns(playerId); tick++) {
+                from.exchange(new Messages.ClientInput(playerId, PlayerInputs.MAX_DIRECTION, 0, ++inputSequence, WorldReplicator.NO_VERSION));
+                pair.forEach(ShardNode::tick);
+                Thread.sleep(DELIVERY_WAIT_MS);
+            }
+            assertTrue(to.owns(playerId), "the player never reached the other shard");
+
+            // Turned back once, the client sending nothing more
+            from.exchange(new Messages.ClientInput(playerId, -PlayerInputs.MAX_DIRECTION, 0, ++inputSequence, WorldReplicator.NO_VERSION));
+            final double turnedAt = WORLD_WIDTH / 2.0;
+            for (int tick = 0; tick < 20; tick++) {
+                pair.forEach(ShardNode::tick);
+                Thread.sleep(DELIVERY_WAIT_MS);
+            }
+            final Player player = positions(pair).get(playerId);
+            assertTrue(player != null && player.getX() < turnedAt, "the new owner kept the input of the hand-off");
+        } finally {
+            pair.forEach(ShardNode::shutdown);
+        }
+    }
+
+    private static Map<String, Player> positions(final List<ShardNode> shards) {
+        final Map<String, Player> positions = new HashMap<>();
+        for (final ShardNode node : shards) {
+            for (final Player player : node.getPublishedWorld().getPlayers()) {
+                if (node.owns(player.getId())) {
+                    positions.put(player.getId(), player);
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static double nearestBorder(final ShardNode node) {
+        final int border = node.getIndex() == SHARDS - 1 ? node.getIndex() : node.getIndex() + 1;
+        return (double) WORLD_WIDTH * border / SHARDS;
+    }
+}
@@ -0,0 +1,79 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SpatialGridTest {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 800;
+
+    @Test
+    void nearestMatchesALinearScan() {
+        final Random random = new Random(7);
+        for (final int count : new int[] {1, 2, 10, 500}) {
+            final List<Food> foods = randomFoods(random, count);
+            final SpatialGrid<Food> grid = new SpatialGrid<>(foods, WIDTH, HEIGHT);
+            for (int i = 0; i < 500; i++) {
+                // Points outside the world too, as players clamped to its edges may look from there
+                final double x = random.nextDouble() * (WIDTH + 200) - 100;
+                final double y = random.nextDouble() * (HEIGHT + 200) - 100;
+                assertSame(linearNearest(foods, x, y), grid.nearest(x, y).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void nearestAmongLargePlayersMatchesALinearScan() {
+        final Random random = new Random(11);
+        final List<Player> players = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            players.add(new Player("p" + i, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, 100 + random.nextDouble() * 50_000));
+        }
+        final SpatialGrid<Player> grid = new SpatialGrid<>(players, WIDTH, HEIGHT);
+        for (int i = 0; i < 500; i++) {
+            final double x = random.nextDouble() * WIDTH;
+            final double y = random.nextDouble() * HEIGHT;
+            assertSame(linearNearest(players, x, y), grid.nearest(x, y).orElseThrow());
+        }
+    }
+
+    @Test
+    void equallyCloseEntitiesResolveToTheFirstInListOrder() {
+        final List<Food> foods = List.of(new Food("f1", 900, 700, 1), new Food("f2", 100, 100, 1), new Food("f3", 100, 100, 1));
+        assertSame(foods.get(1), new SpatialGrid<>(foods, WIDTH, HEIGHT).nearest(105, 100).orElseThrow());
+    }
+
+    @Test
+    void emptyGridHasNoNearest() {
+        assertEquals(Optional.empty(), new SpatialGrid<Food>(List.of(), WIDTH, HEIGHT).nearest(10, 10));
+    }
+
+    private static List<Food> randomFoods(final Random random, final int count) {
+        final List<Food> foods = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            foods.add(new Food("f" + i, random.nextDouble() * WIDTH, random.nextDouble() * HEIGHT, Food.DEFAULT_MASS));
+        }
+        return foods;
+    }
+
+    private static <E extends Entity> E linearNearest(final List<E> entities, final double x, final double y) {
+        E best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (final E entity : entities) {
+            final double distance = Math.hypot(entity.getX() - x, entity.getY() - y);
+            if (distance < bestDistance) {
+                best = entity;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
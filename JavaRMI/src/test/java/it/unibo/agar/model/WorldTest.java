@@ -0,0 +1,69 @@
+package it.unibo.agar.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class WorldTest {
+
+    private final Player first = new Player("p1", 10, 10, 120);
+    private final Player second = new Player("p2", 20, 20, 150);
+    private final Food food = new Food("f1", 30, 30, Food.DEFAULT_MASS);
+    private final World world = new World(100, 100, List.of(first, second), List.of(food));
+
+    @Test
+    void playersAreFoundById() {
+        assertSame(first, world.getPlayerById("p1").orElseThrow());
+        assertSame(second, world.getPlayerById("p2").orElseThrow());
+        assertEquals(Optional.empty(), world.getPlayerById("p3"));
+    }
+
+    @Test
+    void theFirstOfPlayersSharingAnIdIsFound() {
+        final Player copy = new Player("p1", 50, 50, 500);
+        assertSame(first, new World(100, 100, List.of(first, copy), List.of()).getPlayerById("p1").orElseThrow());
+    }
+
+    @Test
+    void theIndexIsRebuiltAfterDeserialization() throws Exception {
+        world.getPlayerById("p1");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(world);
+        }
+        final World copy;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (World) input.readObject();
+        }
+        assertEquals("p2", copy.getPlayerById("p2").orElseThrow().getId());
+    }
+
+    @Test
+    void removalsMatchOnIdsAndKeepTheOrder() {
+        final List<Player> many = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            many.add(new Player("p" + i, i, i, 120));
+        }
+        final World removed = new World(100, 100, many, List.of())
+                .removePlayers(List.of(new Player("p3", 0, 0, 1), new Player("p7", 0, 0, 1), new Player("p42", 0, 0, 1)));
+        assertEquals(List.of("p0", "p1", "p2", "p4", "p5", "p6", "p8", "p9"),
+                removed.getPlayers().stream().map(Player::getId).toList());
+        assertEquals(Optional.empty(), removed.getPlayerById("p3"));
+        assertEquals(List.of(), world.removeFoods(List.of(new Food("f1", 0, 0, 1))).getFoods());
+    }
+
+    @Test
+    void removingNothingKeepsTheWorld() {
+        assertSame(world, world.removePlayers(List.of()));
+        assertSame(world, world.removeFoods(List.of()));
+    }
+}